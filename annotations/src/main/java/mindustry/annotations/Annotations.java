@@ -80,6 +80,8 @@ public class Annotations{
         Class[] value();
         boolean collide() default false;
         boolean spatial() default false;
+        /** If true, a uniform grid is used instead of a quadtree for spatial lookups. Best for large amounts of small, similarly-sized entities. */
+        boolean grid() default false;
         boolean mapping() default false;
     }
 
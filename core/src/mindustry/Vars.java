@@ -18,12 +18,14 @@ import mindustry.game.EventType.*;
 import mindustry.gen.*;
 import mindustry.input.*;
 import mindustry.io.*;
+import mindustry.logic.*;
 import mindustry.maps.Map;
 import mindustry.maps.*;
 import mindustry.mod.*;
 import mindustry.net.Net;
 import mindustry.net.*;
 import mindustry.world.*;
+import mindustry.world.blocks.power.*;
 
 import java.io.*;
 import java.nio.charset.*;
@@ -198,6 +200,8 @@ public class Vars implements Loadable{
     public static WaveSpawner spawner;
     public static BlockIndexer indexer;
     public static Pathfinder pathfinder;
+    public static LScheduler logicScheduler;
+    public static PowerSolver powerSolver;
 
     public static Control control;
     public static Logic logic;
@@ -263,6 +267,8 @@ public class Vars implements Loadable{
         spawner = new WaveSpawner();
         indexer = new BlockIndexer();
         pathfinder = new Pathfinder();
+        logicScheduler = new LScheduler();
+        powerSolver = new PowerSolver();
         bases = new BaseRegistry();
 
         state = new GameState();
@@ -10,9 +10,13 @@ import mindustry.annotations.Annotations.*;
 import mindustry.game.EventType.*;
 import mindustry.game.*;
 import mindustry.gen.*;
+import mindustry.net.Administration.*;
 import mindustry.world.*;
 import mindustry.world.meta.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 import static mindustry.Vars.*;
 
 public class Pathfinder implements Runnable{
@@ -20,7 +24,8 @@ public class Pathfinder implements Runnable{
     private static final int updateFPS = 60;
     private static final int updateInterval = 1000 / updateFPS;
     private static final int impassable = -1;
-    private static final int fieldTimeout = 1000 * 60 * 2;
+    /** weight of tiles that have been invalidated by a repair and not reached again yet */
+    private static final int invalid = Integer.MAX_VALUE;
 
     public static final int
         fieldCore = 0,
@@ -59,15 +64,31 @@ public class Pathfinder implements Runnable{
     //maps team, cost, type to flow field
     Flowfield[][][] cache;
 
-    /** tile data, see PathTileStruct */
-    int[][] tiles = new int[0][0];
+    /** tile data, see PathTileStruct; indexed by x + y * width, like {@link Tiles} */
+    int[] tiles = new int[0];
+    /** size of the tile data */
+    int wwidth, wheight;
     /** unordered array of path data for iteration only. DO NOT iterate or access this in the main thread. */
     Seq<Flowfield> threadList = new Seq<>(), mainList = new Seq<>();
     /** handles task scheduling on the update thread. */
     TaskQueue queue = new TaskQueue();
     /** Current pathfinding thread */
     @Nullable Thread thread;
+    /** Worker pool for advancing independent flowfields concurrently. Null when running single-threaded. */
+    @Nullable ExecutorService executor;
+    /** Amount of worker threads in the executor. */
+    int threads = 1;
+    /** Time in milliseconds after which unused flowfields are removed. <= 0 to never remove them. */
+    long fieldTimeout;
+    /** Futures of flowfield updates submitted to the executor. Pathfinding thread only. */
+    Seq<Future<?>> futures = new Seq<>();
     IntSeq tmpArray = new IntSeq();
+    /** temporary repair data. Pathfinding thread only. */
+    IntSeq repairStack = new IntSeq(), repairWeights = new IntSeq(), repaired = new IntSeq();
+    IntSet repairSeeds = new IntSet();
+
+    /** Whether tile changes are repaired locally instead of causing a complete recalculation of every field. */
+    public volatile boolean incremental = true;
 
     public Pathfinder(){
         clearCache();
@@ -76,13 +97,15 @@ public class Pathfinder implements Runnable{
             stop();
 
             //reset and update internal tile array
-            tiles = new int[world.width()][world.height()];
+            wwidth = world.width();
+            wheight = world.height();
+            tiles = new int[wwidth * wheight];
             threadList = new Seq<>();
             mainList = new Seq<>();
             clearCache();
 
             for(Tile tile : world.tiles){
-                tiles[tile.x][tile.y] = packTile(tile);
+                tiles[tile.x + tile.y * wwidth] = packTile(tile);
             }
 
             //special preset which may help speed things up; this is optional
@@ -130,6 +153,17 @@ public class Pathfinder implements Runnable{
     /** Starts or restarts the pathfinding thread. */
     private void start(){
         stop();
+
+        threads = Math.max(Config.pathfinderThreads.num(), 1);
+        fieldTimeout = Config.flowfieldTimeout.num() * 1000L;
+        if(threads > 1){
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "Pathfinder-Worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
         thread = Threads.daemon(this);
     }
 
@@ -139,19 +173,48 @@ public class Pathfinder implements Runnable{
             thread.interrupt();
             thread = null;
         }
+        if(executor != null){
+            executor.shutdownNow();
+            executor = null;
+        }
         queue.clear();
     }
 
+    /** Stops the pathfinding thread and waits for it to exit. Until the next world load, fields only advance through {@link #updateFields()}. */
+    public void stopThread(){
+        Thread last = thread;
+        stop();
+
+        if(last != null){
+            try{
+                last.join();
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Runs pending tile changes and propagates every field until it converges, on the calling thread. The pathfinding thread must be stopped. */
+    public void updateFields(){
+        queue.run();
+        for(Flowfield data : threadList){
+            updateFrontier(data, -1);
+        }
+    }
+
     /** Update a tile in the internal pathfinding grid.
-     * Causes a complete pathfinding reclaculation. Main thread only. */
+     * Repairs the affected region of each field, or causes a complete recalculation if targets changed. Main thread only. */
     public void updateTile(Tile tile){
         if(net.client()) return;
 
         int x = tile.x, y = tile.y;
+        IntSeq changed = new IntSeq();
 
         tile.getLinkedTiles(t -> {
-            if(Structs.inBounds(t.x, t.y, tiles)){
-                tiles[t.x][t.y] = packTile(t);
+            if(t.x < wwidth && t.y < wheight){
+                int index = t.x + t.y * wwidth;
+                tiles[index] = packTile(t);
+                changed.add(index);
             }
         });
 
@@ -167,7 +230,11 @@ public class Pathfinder implements Runnable{
 
         queue.post(() -> {
             for(Flowfield data : threadList){
-                updateTargets(data, x, y);
+                if(incremental){
+                    repairTiles(data, changed);
+                }else{
+                    updateTargets(data, x, y);
+                }
             }
         });
     }
@@ -182,34 +249,19 @@ public class Pathfinder implements Runnable{
                 if(state.isPlaying()){
                     queue.run();
 
-                    //total update time no longer than maxUpdate
-                    for(Flowfield data : threadList){
-                        updateFrontier(data, maxUpdate / threadList.size);
-
-                        //TODO implement timeouts... or don't
-                        /*
-                        //remove flowfields that have 'timed out' so they can be garbage collected and no longer waste space
-                        if(data.refreshRate > 0 && Time.timeSinceMillis(data.lastUpdateTime) > fieldTimeout){
-                            //make sure it doesn't get removed twice
-                            data.lastUpdateTime = Time.millis();
-
-                            Team team = data.team;
-
-                            Core.app.post(() -> {
-                                //remove its used state
-                                if(fieldMap[team.id] != null){
-                                    fieldMap[team.id].remove(data.target);
-                                    fieldMapUsed[team.id].remove(data.target);
-                                }
-                                //remove from main thread list
-                                mainList.remove(data);
-                            });
-
-                            queue.post(() -> {
-                                //remove from this thread list with a delay
-                                threadList.remove(data);
-                            });
-                        }*/
+                    ExecutorService executor = this.executor;
+
+                    if(executor != null && threadList.size > 1){
+                        updateParallel(executor);
+                    }else{
+                        //total update time no longer than maxUpdate
+                        for(Flowfield data : threadList){
+                            updateFrontier(data, maxUpdate / threadList.size);
+                        }
+                    }
+
+                    if(fieldTimeout > 0){
+                        removeTimedOut();
                     }
                 }
 
@@ -219,15 +271,82 @@ public class Pathfinder implements Runnable{
                     //stop looping when interrupted externally
                     return;
                 }
+            }catch(InterruptedException e){
+                //interrupted while waiting for workers
+                return;
             }catch(Throwable e){
                 e.printStackTrace();
             }
         }
     }
 
+    /**
+     * Advances all flowfields concurrently on the worker pool.
+     * Fields only write to their own weights and frontier, and queued tasks never run while workers are active,
+     * so no further synchronization is needed. Pathfinding thread only.
+     */
+    private void updateParallel(ExecutorService executor) throws InterruptedException{
+        //each worker processes its fields sequentially, so split the budget across the amount of fields per worker
+        long budget = maxUpdate / ((threadList.size + threads - 1) / threads);
+
+        futures.clear();
+
+        for(Flowfield data : threadList){
+            futures.add(executor.submit(() -> updateFrontier(data, budget)));
+        }
+
+        try{
+            for(Future<?> future : futures){
+                future.get();
+            }
+        }catch(ExecutionException e){
+            throw new RuntimeException(e.getCause());
+        }finally{
+            for(Future<?> future : futures){
+                future.cancel(true);
+            }
+            futures.clear();
+        }
+    }
+
+    /**
+     * Removes flowfields that have not been used by any unit for a while, so they can be garbage collected and no longer waste update time.
+     * They are created again when requested. Pathfinding thread only.
+     */
+    private void removeTimedOut(){
+        for(int i = threadList.size - 1; i >= 0; i--){
+            Flowfield data = threadList.get(i);
+
+            if(Time.timeSinceMillis(data.lastQueryTime) > fieldTimeout){
+                threadList.remove(i);
+
+                Core.app.post(() -> {
+                    //remove from main thread list
+                    mainList.remove(data, true);
+
+                    //remove from cache, so it gets re-created when needed
+                    Flowfield[][] fields = cache[data.team.id];
+                    for(int c = 0; c < fields.length; c++){
+                        for(int f = 0; f < fields[c].length; f++){
+                            if(fields[c][f] == data){
+                                fields[c][f] = null;
+                            }
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /** @return all flowfields currently in use. Main thread only. */
+    public Seq<Flowfield> fields(){
+        return mainList;
+    }
+
     public Flowfield getField(Team team, int costType, int fieldType){
         if(cache[team.id][costType][fieldType] == null){
             Flowfield field = fieldTypes.get(fieldType).get();
+            field.lastQueryTime = Time.millis();
             field.team = team;
             field.cost = costTypes.get(costType);
             field.targets.clear();
@@ -243,6 +362,8 @@ public class Pathfinder implements Runnable{
     public @Nullable Tile getTargetTile(Tile tile, Flowfield path){
         if(tile == null) return null;
 
+        path.lastQueryTime = Time.millis();
+
         //uninitialized flowfields are not applicable
         if(!path.initialized){
             return tile;
@@ -267,8 +388,8 @@ public class Pathfinder implements Runnable{
             }
         }
 
-        int[][] values = path.weights;
-        int value = values[tile.x][tile.y];
+        int[] values = path.weights;
+        int value = values[tile.x + tile.y * wwidth];
 
         Tile current = null;
         int tl = 0;
@@ -278,10 +399,12 @@ public class Pathfinder implements Runnable{
             Tile other = world.tile(dx, dy);
             if(other == null) continue;
 
-            if(values[dx][dy] < value && (current == null || values[dx][dy] < tl) && path.passable(dx, dy) &&
-            !(point.x != 0 && point.y != 0 && (!path.passable(tile.x + point.x, tile.y) || !path.passable(tile.x, tile.y + point.y)))){ //diagonal corner trap
+            int index = dx + dy * wwidth;
+
+            if(values[index] < value && (current == null || values[index] < tl) && path.passable(index) &&
+            !(point.x != 0 && point.y != 0 && (!path.passable(tile.x + point.x + tile.y * wwidth) || !path.passable(tile.x + dy * wwidth)))){ //diagonal corner trap
                 current = other;
-                tl = values[dx][dy];
+                tl = values[index];
             }
         }
 
@@ -295,9 +418,11 @@ public class Pathfinder implements Runnable{
      * This only occurs for active teams.
      */
     private void updateTargets(Flowfield path, int x, int y){
-        if(!Structs.inBounds(x, y, path.weights)) return;
+        if(x < 0 || y < 0 || x >= wwidth || y >= wheight) return;
+
+        int index = x + y * wwidth;
 
-        if(path.weights[x][y] == 0){
+        if(path.weights[index] == 0){
             //this was a previous target
             path.frontier.clear();
         }else if(!path.frontier.isEmpty()){
@@ -306,7 +431,7 @@ public class Pathfinder implements Runnable{
         }
 
         //update cost of the tile TODO maybe only update the cost when it's not passable
-        path.weights[x][y] = path.cost.getCost(path.team, tiles[x][y]);
+        path.weights[index] = path.cost.getCost(path.team, tiles[index]);
 
         //clear frontier to prevent contamination
         path.frontier.clear();
@@ -314,21 +439,121 @@ public class Pathfinder implements Runnable{
         updateTargets(path);
     }
 
+    /**
+     * Locally repairs a flow field after the costs of some tiles have changed.
+     * Every tile whose weight may have been derived from a changed tile is invalidated, and the valid tiles
+     * bordering that region are added to the frontier, which then propagates correct weights back into it.
+     * Cost decreases need no special handling, as the frontier always overwrites weights with cheaper ones.
+     * Changes to targets cause a complete recalculation instead. Pathfinding thread only.
+     */
+    private void repairTiles(Flowfield path, IntSeq changed){
+        int[] weights = path.weights, searches = path.searches;
+        int search = path.search;
+
+        synchronized(path.targets){
+            for(int i = 0; i < changed.size; i++){
+                int index = changed.items[i];
+                if(weights[index] == 0 || path.targets.contains(Point2.pack(index % wwidth, index / wwidth))){
+                    path.frontier.clear();
+                    updateTargets(path);
+                    return;
+                }
+            }
+        }
+
+        if(path.searchStart == 0){
+            path.searchStart = Time.nanos();
+        }
+
+        IntSeq stack = repairStack, prevWeights = repairWeights;
+        stack.clear();
+        prevWeights.clear();
+        repaired.clear();
+
+        for(int i = 0; i < changed.size; i++){
+            int index = changed.items[i];
+
+            if(weights[index] != invalid){
+                stack.add(index);
+                //tiles that were not reached in this search have no dependents
+                prevWeights.add(searches[index] == search ? weights[index] : impassable);
+                weights[index] = invalid;
+            }
+        }
+
+        //invalidate everything that may have been reached through a changed tile
+        while(stack.size > 0){
+            int index = stack.pop(), prev = prevWeights.pop();
+            int x = index % wwidth, y = index / wwidth;
+            repaired.add(index);
+
+            if(prev == impassable) continue;
+
+            for(Point2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y;
+
+                if(dx < 0 || dy < 0 || dx >= wwidth || dy >= wheight) continue;
+
+                int other = dx + dy * wwidth, weight = weights[other];
+                if(searches[other] != search || weight == impassable || weight == invalid || weight == 0) continue;
+
+                int otherCost = path.cost.getCost(path.team, tiles[other]);
+
+                //in a settled field, weights are never larger than this, so anything equal or larger may depend on the tile
+                if(otherCost != impassable && weight >= prev + otherCost){
+                    stack.add(other);
+                    prevWeights.add(weight);
+                    weights[other] = invalid;
+                }
+            }
+        }
+
+        //changed tiles that became impassable can never be reached
+        for(int i = 0; i < changed.size; i++){
+            int index = changed.items[i];
+
+            if(path.cost.getCost(path.team, tiles[index]) == impassable){
+                weights[index] = impassable;
+            }
+        }
+
+        //propagate weights from the border of the invalidated region
+        repairSeeds.clear();
+        for(int i = 0; i < repaired.size; i++){
+            int index = repaired.items[i];
+            int x = index % wwidth, y = index / wwidth;
+
+            for(Point2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y;
+
+                if(dx < 0 || dy < 0 || dx >= wwidth || dy >= wheight) continue;
+
+                int other = dx + dy * wwidth, weight = weights[other];
+                if(searches[other] != search || weight == impassable || weight == invalid) continue;
+
+                if(path.cost.getCost(path.team, tiles[other]) != impassable && repairSeeds.add(other)){
+                    path.frontier.addFirst(other);
+                }
+            }
+        }
+    }
+
     /** Increments the search and sets up flow sources. Does not change the frontier. */
     private void updateTargets(Flowfield path){
 
         //increment search, but do not clear the frontier
         path.search++;
+        path.searchStart = Time.nanos();
 
         synchronized(path.targets){
             //add targets
             for(int i = 0; i < path.targets.size; i++){
                 int pos = path.targets.get(i);
-                int tx = Point2.x(pos), ty = Point2.y(pos);
+                int index = Point2.x(pos) + Point2.y(pos) * wwidth;
 
-                path.weights[tx][ty] = 0;
-                path.searches[tx][ty] = path.search;
-                path.frontier.addFirst(pos);
+                path.weights[index] = 0;
+                path.searches[index] = path.search;
+                path.frontier.addFirst(index);
             }
         }
     }
@@ -347,7 +572,8 @@ public class Pathfinder implements Runnable{
      */
     private void registerPath(Flowfield path){
         path.lastUpdateTime = Time.millis();
-        path.setup(tiles.length, tiles[0].length);
+        path.searchStart = Time.nanos();
+        path.setup(tiles.length);
 
         threadList.add(path);
 
@@ -361,52 +587,66 @@ public class Pathfinder implements Runnable{
         });
 
         //fill with impassables by default
-        for(int x = 0; x < world.width(); x++){
-            for(int y = 0; y < world.height(); y++){
-                path.weights[x][y] = impassable;
-            }
-        }
+        Arrays.fill(path.weights, impassable);
 
         //add targets
         for(int i = 0; i < path.targets.size; i++){
             int pos = path.targets.get(i);
-            path.weights[Point2.x(pos)][Point2.y(pos)] = 0;
-            path.frontier.addFirst(pos);
+            int index = Point2.x(pos) + Point2.y(pos) * wwidth;
+            path.weights[index] = 0;
+            path.frontier.addFirst(index);
         }
     }
 
     /** Update the frontier for a path. Pathfinding thread only. */
     private void updateFrontier(Flowfield path, long nsToRun){
         long start = Time.nanos();
+        int expanded = 0;
+
+        int[] weights = path.weights, searches = path.searches;
+        int[] tiles = this.tiles;
 
         while(path.frontier.size > 0 && (nsToRun < 0 || Time.timeSinceNanos(start) <= nsToRun)){
-            Tile tile = world.tile(path.frontier.removeLast());
-            if(tile == null || path.weights == null) return; //something went horribly wrong, bail
-            int cost = path.weights[tile.x][tile.y];
+            int index = path.frontier.removeLast();
+            if(weights == null || index < 0 || index >= tiles.length) return; //something went horribly wrong, bail
+            int cost = weights[index];
+            expanded ++;
 
             //pathfinding overflowed for some reason, time to bail. the next block update will handle this, hopefully
-            if(path.frontier.size >= world.width() * world.height()){
+            if(path.frontier.size >= tiles.length){
                 path.frontier.clear();
                 return;
             }
 
-            if(cost != impassable){
+            //invalidated tiles are added back to the frontier once they are reached again
+            if(cost != impassable && cost != invalid){
+                int x = index % wwidth, y = index / wwidth;
+
                 for(Point2 point : Geometry.d4){
 
-                    int dx = tile.x + point.x, dy = tile.y + point.y;
+                    int dx = x + point.x, dy = y + point.y;
 
-                    if(dx < 0 || dy < 0 || dx >= tiles.length || dy >= tiles[0].length) continue;
+                    if(dx < 0 || dy < 0 || dx >= wwidth || dy >= wheight) continue;
 
-                    int otherCost = path.cost.getCost(path.team, tiles[dx][dy]);
+                    int other = dx + dy * wwidth;
+                    int otherCost = path.cost.getCost(path.team, tiles[other]);
 
-                    if((path.weights[dx][dy] > cost + otherCost || path.searches[dx][dy] < path.search) && otherCost != impassable){
-                        path.frontier.addFirst(Point2.pack(dx, dy));
-                        path.weights[dx][dy] = cost + otherCost;
-                        path.searches[dx][dy] = (short)path.search;
+                    if((weights[other] > cost + otherCost || searches[other] < path.search) && otherCost != impassable){
+                        path.frontier.addFirst(other);
+                        weights[other] = cost + otherCost;
+                        searches[other] = (short)path.search;
                     }
                 }
             }
         }
+
+        path.expansions += expanded;
+
+        //record how long it took for the search to fully propagate
+        if(path.frontier.size == 0 && path.searchStart != 0){
+            path.convergeTime = Time.timeSinceNanos(path.searchStart) / 1000000f;
+            path.searchStart = 0;
+        }
     }
 
     public static class EnemyCoreField extends Flowfield{
@@ -453,7 +693,7 @@ public class Pathfinder implements Runnable{
      * Data for a flow field to some set of destinations.
      * Concrete subclasses must specify a way to fetch costs and destinations.
      * */
-    static abstract class Flowfield{
+    public static abstract class Flowfield{
         /** Refresh rate in milliseconds. Return any number <= 0 to disable. */
         protected int refreshRate;
         /** Team this path is for. Set before using. */
@@ -461,11 +701,11 @@ public class Pathfinder implements Runnable{
         /** Function for calculating path cost. Set before using. */
         protected PathCost cost = costTypes.get(costGround);
 
-        /** costs of getting to a specific tile */
-        int[][] weights;
+        /** costs of getting to a specific tile, indexed by x + y * width */
+        int[] weights;
         /** search IDs of each position - the highest, most recent search is prioritized and overwritten */
-        int[][] searches;
-        /** search frontier, these are Pos objects */
+        int[] searches;
+        /** search frontier, these are tile indices */
         IntQueue frontier = new IntQueue();
         /** all target positions; these positions have a cost of 0, and must be synchronized on! */
         final IntSeq targets = new IntSeq();
@@ -473,18 +713,35 @@ public class Pathfinder implements Runnable{
         int search = 1;
         /** last updated time */
         long lastUpdateTime;
+        /** last time a unit requested a tile from this flowfield */
+        volatile long lastQueryTime;
         /** whether this flow field is ready to be used */
         boolean initialized;
-
-        void setup(int width, int height){
-            this.weights = new int[width][height];
-            this.searches = new int[width][height];
-            this.frontier.ensureCapacity((width + height) * 3);
+        /** time at which the current search started, in nanoseconds; 0 if the search has converged */
+        volatile long searchStart;
+        /** total amount of tiles expanded from the frontier, for profiling */
+        public long expansions;
+        /** time in milliseconds that the last search took to fully propagate, or -1 if no search has completed yet */
+        public volatile float convergeTime = -1f;
+
+        void setup(int size){
+            this.weights = new int[size];
+            this.searches = new int[size];
+            this.frontier.ensureCapacity((pathfinder.wwidth + pathfinder.wheight) * 3);
             this.initialized = true;
         }
 
-        protected boolean passable(int x, int y){
-            return cost.getCost(team, pathfinder.tiles[x][y]) != impassable;
+        public Team team(){
+            return team;
+        }
+
+        /** @return whether the frontier has been fully processed since the last change */
+        public boolean converged(){
+            return searchStart == 0;
+        }
+
+        protected boolean passable(int index){
+            return cost.getCost(team, pathfinder.tiles[index]) != impassable;
         }
 
         /** Gets targets to pathfind towards. This must run on the main thread. */
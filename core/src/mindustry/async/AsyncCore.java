@@ -2,6 +2,7 @@ package mindustry.async;
 
 import arc.*;
 import arc.struct.*;
+import arc.util.*;
 import mindustry.game.EventType.*;
 
 import java.util.concurrent.*;
@@ -9,15 +10,29 @@ import java.util.concurrent.*;
 import static mindustry.Vars.*;
 
 public class AsyncCore{
+    /**
+     * Flags for shared data that processes may access while running; see {@link AsyncProcess#reads()} and {@link AsyncProcess#writes()}.
+     * Processes that write data which another process reads or writes are never run at the same time.
+     */
+    public static final int
+        dataUnits = 1,
+        dataBullets = 1 << 1,
+        dataBuildings = 1 << 2,
+        dataTiles = 1 << 3,
+        dataPower = 1 << 4;
+
+    /** Unit physics, which pushes apart overlapping units. */
+    public final PhysicsProcess physics = new PhysicsProcess();
+
     //all processes to be executed each frame
     private final Seq<AsyncProcess> processes = Seq.with(
-        new PhysicsProcess()
+        physics
     );
 
-    //futures to be awaited
+    //futures to be awaited, one per process; null for processes that were skipped
     private final Seq<Future<?>> futures = new Seq<>();
 
-    private final ExecutorService executor = Executors.newFixedThreadPool(processes.size, r -> {
+    private final ExecutorService executor = Executors.newFixedThreadPool(Math.max(OS.cores - 1, 2), r -> {
         Thread thread = new Thread(r, "AsyncLogic-Thread");
         thread.setDaemon(true);
         thread.setUncaughtExceptionHandler((t, e) -> Core.app.post(() -> { throw new RuntimeException(e); }));
@@ -40,6 +55,11 @@ public class AsyncCore{
         });
     }
 
+    /** Adds a process to be run every frame. Main thread only; must not be called between {@link #begin()} and {@link #end()}. */
+    public void add(AsyncProcess process){
+        processes.add(process);
+    }
+
     public void begin(){
         if(state.isPlaying()){
             //sync begin
@@ -49,11 +69,30 @@ public class AsyncCore{
 
             futures.clear();
 
-            //submit all tasks
-            for(AsyncProcess p : processes){
-                if(p.shouldProcess()){
-                    futures.add(executor.submit(p::process));
+            //submit all tasks in order; each one waits for the earlier tasks that it conflicts with.
+            //as the executor starts tasks in submission order, a task never waits for one that has not started yet
+            for(int i = 0; i < processes.size; i++){
+                AsyncProcess p = processes.get(i);
+
+                if(!p.shouldProcess()){
+                    futures.add((Future<?>)null);
+                    continue;
                 }
+
+                Seq<Future<?>> dependencies = new Seq<>();
+                for(int j = 0; j < i; j++){
+                    if(futures.get(j) != null && conflicts(p, processes.get(j))){
+                        dependencies.add(futures.get(j));
+                    }
+                }
+
+                futures.add(executor.submit(() -> {
+                    for(Future<?> future : dependencies){
+                        future.get();
+                    }
+                    p.process();
+                    return null;
+                }));
             }
         }
     }
@@ -69,9 +108,16 @@ public class AsyncCore{
         }
     }
 
+    /** @return whether two processes access the same data, with at least one of them writing to it. */
+    private boolean conflicts(AsyncProcess a, AsyncProcess b){
+        return (a.writes() & (b.reads() | b.writes())) != 0 || (a.reads() & b.writes()) != 0;
+    }
+
     private void complete(){
         //wait for all threads to stop processing
         for(Future future : futures){
+            if(future == null) continue;
+
             try{
                 future.get();
             }catch(Throwable t){
@@ -20,4 +20,17 @@ public interface AsyncProcess{
     default boolean shouldProcess(){
         return true;
     }
+
+    /**
+     * @return flags of the shared data this process reads in {@link #process()}, see {@link AsyncCore}.
+     * Game state that is not declared here must only be accessed in the sync methods.
+     */
+    default int reads(){
+        return 0;
+    }
+
+    /** @return flags of the shared data this process writes to in {@link #process()}, see {@link AsyncCore}. */
+    default int writes(){
+        return 0;
+    }
 }
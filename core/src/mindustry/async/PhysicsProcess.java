@@ -4,19 +4,24 @@ import arc.math.*;
 import arc.math.geom.*;
 import arc.math.geom.QuadTree.*;
 import arc.struct.*;
+import arc.util.*;
 import mindustry.*;
 import mindustry.async.PhysicsProcess.PhysicsWorld.*;
 import mindustry.entities.*;
 import mindustry.gen.*;
 
+import java.util.concurrent.*;
+
 public class PhysicsProcess implements AsyncProcess{
-    private static final int
+    public static final int
         layers = 3,
         layerGround = 0,
         layerLegs = 1,
         layerFlying = 2;
 
     private PhysicsWorld physics;
+    //solve times of the last update, published on the main thread
+    private final float[] solveTimes = new float[layers];
     private Seq<PhysicRef> refs = new Seq<>(false);
     //currently only enabled for units
     private EntityGroup<Unit> group = Groups.unit;
@@ -89,6 +94,15 @@ public class PhysicsProcess implements AsyncProcess{
             //move by delta
             entity.move(ref.body.x - ref.x, ref.body.y - ref.y);
         }
+
+        for(int i = 0; i < layers; i++){
+            solveTimes[i] = physics.solveTime(i);
+        }
+    }
+
+    /** @return time in milliseconds that solving a layer took during the last update. */
+    public float solveTime(int layer){
+        return solveTimes[layer];
     }
 
     @Override
@@ -97,6 +111,10 @@ public class PhysicsProcess implements AsyncProcess{
             refs.clear();
             physics = null;
         }
+
+        for(int i = 0; i < layers; i++){
+            solveTimes[i] = 0f;
+        }
     }
 
     @Override
@@ -123,14 +141,19 @@ public class PhysicsProcess implements AsyncProcess{
         private static final float scl = 1.25f;
 
         private final QuadTree<PhysicsBody>[] trees = new QuadTree[layers];
+        private final Seq<PhysicsBody>[] layerBodies = new Seq[layers];
         private final Seq<PhysicsBody> bodies = new Seq<>(false, 16, PhysicsBody.class);
-        private final Seq<PhysicsBody> seq = new Seq<>(PhysicsBody.class);
-        private final Rect rect = new Rect();
-        private final Vec2 vec = new Vec2();
+        private final LayerSolver[] solvers = new LayerSolver[layers];
+        private final Seq<Future<?>> futures = new Seq<>();
+
+        /** Whether layers are solved on separate threads. Layers never interact, so this does not change the result. */
+        public boolean parallel = true;
 
         public PhysicsWorld(Rect bounds){
             for(int i = 0; i < layers; i++){
                 trees[i] = new QuadTree<>(new Rect(bounds));
+                layerBodies[i] = new Seq<>(PhysicsBody.class);
+                solvers[i] = new LayerSolver();
             }
         }
 
@@ -145,20 +168,57 @@ public class PhysicsProcess implements AsyncProcess{
         public void update(){
             for(int i = 0; i < layers; i++){
                 trees[i].clear();
+                layerBodies[i].clear();
             }
 
+            //split bodies by layer, keeping their relative order
             for(int i = 0; i < bodies.size; i++){
                 PhysicsBody body = bodies.items[i];
                 body.collided = false;
                 trees[body.layer].insert(body);
+                layerBodies[body.layer].add(body);
+            }
+
+            if(parallel){
+                futures.clear();
+
+                //solve the last layer on this thread
+                for(int i = 0; i < layers - 1; i++){
+                    int layer = i;
+                    futures.add(ForkJoinPool.commonPool().submit(() -> solve(layer)));
+                }
+
+                solve(layers - 1);
+
+                for(Future<?> future : futures){
+                    try{
+                        future.get();
+                    }catch(Throwable t){
+                        throw new RuntimeException(t);
+                    }
+                }
+                futures.clear();
+            }else{
+                for(int i = 0; i < layers; i++){
+                    solve(i);
+                }
             }
+        }
+
+        /** Pushes apart all overlapping bodies of a layer. Bodies and temporary data are never shared between layers. */
+        private void solve(int layer){
+            long start = Time.nanos();
+            LayerSolver solver = solvers[layer];
+            Seq<PhysicsBody> bodies = layerBodies[layer], seq = solver.seq;
+            Rect rect = solver.rect;
+            Vec2 vec = solver.vec;
 
             for(int i = 0; i < bodies.size; i++){
                 PhysicsBody body = bodies.items[i];
                 body.hitbox(rect);
 
                 seq.size = 0;
-                trees[body.layer].intersect(rect, seq);
+                trees[layer].intersect(rect, seq);
 
                 for(int j = 0; j < seq.size; j++){
                     PhysicsBody other = seq.items[j];
@@ -181,6 +241,21 @@ public class PhysicsProcess implements AsyncProcess{
                 }
                 body.collided = true;
             }
+
+            solver.time = Time.timeSinceNanos(start) / 1000000f;
+        }
+
+        /** @return time in milliseconds that solving a layer took during the last update. Only valid once the update has finished. */
+        public float solveTime(int layer){
+            return solvers[layer].time;
+        }
+
+        /** Temporary data for solving a single layer. */
+        private static class LayerSolver{
+            float time;
+            final Seq<PhysicsBody> seq = new Seq<>(PhysicsBody.class);
+            final Rect rect = new Rect();
+            final Vec2 vec = new Vec2();
         }
 
         public static class PhysicsBody implements QuadTreeObject{
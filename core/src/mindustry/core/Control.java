@@ -403,6 +403,9 @@ public class Control implements ApplicationListener, Loadable{
             }
         }
 
+        //saves still being written in the background would be cut off
+        SaveIO.awaitSaves();
+
         content.dispose();
         net.dispose();
         Musics.dispose();
@@ -319,7 +319,13 @@ public class Logic implements ApplicationListener{
                 state.envAttrs.clear();
                 Groups.weather.each(w -> state.envAttrs.add(w.weather.attrs, w.opacity));
 
+                //solve all power graphs before buildings read their power status
+                powerSolver.update();
+
                 Groups.update();
+
+                //processors queue themselves during building updates, if they run in parallel
+                logicScheduler.update();
             }
 
             if(!net.client() && !world.isInvalidMap() && !state.isEditor() && state.rules.canGameOver){
@@ -370,6 +370,29 @@ public class NetClient implements ApplicationListener{
         Groups.player.removeByID(playerid);
     }
 
+    /**
+     * Reads the sync data of an entity from a snapshot.
+     * The server skips unchanged and distant entities, so when an entity resumes after such a gap, it continues from its
+     * last target over one snapshot interval, instead of interpolating across the whole gap from wherever it was extrapolated to.
+     */
+    public static void readSnapshot(Syncc entity, Reads read, boolean created){
+        boolean resumed = !created && entity.lastUpdated() != 0 && Time.timeSinceMillis(entity.lastUpdated()) > NetServer.snapshotSpacing * 2;
+
+        if(resumed){
+            entity.snapSync();
+        }
+
+        //read the entity
+        entity.readSync(read);
+
+        if(created){
+            //snap initial starting position
+            entity.snapSync();
+        }else if(resumed){
+            entity.updateSpacing(NetServer.snapshotSpacing);
+        }
+    }
+
     @Remote(variants = Variant.one, priority = PacketPriority.low, unreliable = true)
     public static void entitySnapshot(short amount, short dataLen, byte[] data){
         try{
@@ -399,13 +422,7 @@ public class NetClient implements ApplicationListener{
                     created = true;
                 }
 
-                //read the entity
-                entity.readSync(Reads.get(input));
-
-                if(created){
-                    //snap initial starting position
-                    entity.snapSync();
-                }
+                readSnapshot(entity, Reads.get(input), created);
 
                 if(add){
                     entity.add();
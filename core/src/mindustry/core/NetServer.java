@@ -34,11 +34,21 @@ import static mindustry.Vars.*;
 
 public class NetServer implements ApplicationListener{
     /** note that snapshots are compressed, so the max snapshot size here is above the typical UDP safe limit */
-    private static final int maxSnapshotSize = 800, timerBlockSync = 0;
+    private static final int maxSnapshotSize = 800, timerBlockSync = 0, timerEntitySync = 1;
     private static final float serverSyncTime = 12, blockSyncTime = 60 * 6;
+    /** Time between entity snapshots, in milliseconds. */
+    public static final long snapshotSpacing = (long)(serverSyncTime / 60f * 1000f);
+    /** Every this many block snapshots, all buildings are sent, whether they changed or not. Snapshots are unreliable, so this bounds how long a lost change stays wrong. */
+    private static final int blockRefreshInterval = 2;
     private static final FloatBuffer fbuffer = FloatBuffer.allocate(20);
     private static final Vec2 vector = new Vec2();
     private static final Rect viewport = new Rect();
+    /** Entities this far outside of a player's view are considered out of interest and synced less often. */
+    private static final float viewMargin = tilesize * 8f;
+    /** Out-of-view entities are only sent every this many snapshots. */
+    private static final int farSyncInterval = 4;
+    /** Unchanged entities are re-sent every this many snapshots, in case the last packet containing them was lost. */
+    private static final int keyframeInterval = 10;
     /** If a player goes away of their server-side coordinates by this distance, they get teleported back. */
     private static final float correctDist = 16f;
 
@@ -65,7 +75,7 @@ public class NetServer implements ApplicationListener{
     };
 
     private boolean closing = false;
-    private Interval timer = new Interval();
+    private Interval timer = new Interval(2);
 
     private ReusableByteOutStream writeBuffer = new ReusableByteOutStream(127);
     private Writes outputBuffer = new Writes(new DataOutputStream(writeBuffer));
@@ -74,10 +84,43 @@ public class NetServer implements ApplicationListener{
     private ReusableByteOutStream syncStream = new ReusableByteOutStream();
     /** Data stream for writing player sync data to. */
     private DataOutputStream dataStream = new DataOutputStream(syncStream);
+    /** Sync data of every entity, serialized once per sync and shared between all connections. */
+    private ReusableByteOutStream entityStream = new ReusableByteOutStream();
+    private Writes entityWrites = new Writes(new DataOutputStream(entityStream));
+    /** Entities in the shared sync data, with the offset and hash of each one's data. The last offset is the end. */
+    private Seq<Syncc> syncEntities = new Seq<>();
+    private IntSeq entityOffsets = new IntSeq(), entityHashes = new IntSeq();
+    /** Compressed snapshots of contiguous entity ranges, keyed by start and end index. */
+    private LongMap<byte[]> compressedSnapshots = new LongMap<>();
+    private int syncTick, cachedSyncTick = -1;
+    /** Stream for serializing a single building before it is compared against its last broadcast state. */
+    private ReusableByteOutStream blockStream = new ReusableByteOutStream();
+    private Writes blockWrites = new Writes(new DataOutputStream(blockStream));
+    /** Hash of the last broadcast state of each building, by position. */
+    private IntIntMap blockHashes = new IntIntMap(), nextBlockHashes = new IntIntMap();
+    private int blockSnapshots;
+    /** Connections that finished loading the world and still need a full block snapshot. */
+    private Seq<NetConnection> blockSyncRequests = new Seq<>();
+    /** Serialized map data shared between joining players until the world changes. */
+    public final WorldDataCache worldCache = new WorldDataCache();
+    /** Amount of worlds loaded so far; world data written for an earlier world is not sent. */
+    private int worldLoads;
     /** Packet handlers for custom types of messages. */
     private ObjectMap<String, Seq<Cons2<Player, String>>> customPacketHandlers = new ObjectMap<>();
 
     public NetServer(){
+        //cached world data is dropped when tiles or buildings change; other building state is checked during block syncs
+        Events.on(WorldLoadEvent.class, e -> {
+            worldLoads ++;
+            worldCache.invalidate();
+            //the first block sync of a new world is always a full one
+            blockHashes.clear();
+            blockSnapshots = 0;
+        });
+        Events.on(TileChangeEvent.class, e -> worldCache.invalidate());
+        Events.on(ConfigEvent.class, e -> worldCache.invalidate());
+        Events.on(DepositEvent.class, e -> worldCache.invalidate());
+        Events.on(WithdrawEvent.class, e -> worldCache.invalidate());
 
         net.handleServer(Connect.class, (con, connect) -> {
             if(admins.isIPBanned(connect.addressTCP) || admins.isSubnetBanned(connect.addressTCP)){
@@ -477,14 +520,30 @@ public class NetServer implements ApplicationListener{
     }
 
     public void sendWorldData(Player player){
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        DeflaterOutputStream def = new FastDeflaterOutputStream(stream);
-        NetworkIO.writeWorld(player, def);
-        WorldStream data = new WorldStream();
-        data.stream = new ByteArrayInputStream(stream.toByteArray());
-        player.con.sendStream(data);
+        //the client clears its entities on world load, so everything needs to be sent again
+        player.con.resetSync();
+
+        NetConnection con = player.con;
+        int loads = worldLoads;
 
-        Log.debug("Packed @ bytes of world data.", stream.size());
+        //compression happens off the main thread; anything sent to the client in the meantime is queued until its world has loaded
+        worldCache.write(player).whenComplete((bytes, error) -> Core.app.post(() -> {
+            //the player left, or a different world has been loaded and sent since
+            if(!con.isConnected() || loads != worldLoads) return;
+
+            if(error != null){
+                Log.err("Failed to write world data.");
+                Log.err(error);
+                con.kick(KickReason.serverRestarting);
+                return;
+            }
+
+            WorldStream data = new WorldStream();
+            data.stream = new ByteArrayInputStream(bytes);
+            con.sendStream(data);
+
+            Log.debug("Packed @ bytes of world data.", bytes.length);
+        }));
     }
 
     public void addPacketHandler(String type, Cons2<Player, String> handler){
@@ -734,6 +793,8 @@ public class NetServer implements ApplicationListener{
         if(player.con == null || player.con.hasConnected) return;
 
         player.con.hasConnected = true;
+        //block changes broadcast while the world was loading may have been missed
+        netServer.blockSyncRequests.add(player.con);
 
         if(Config.showConnectMessages.bool()){
             Call.sendMessage("[accent]" + player.name + "[accent] has connected.");
@@ -762,6 +823,10 @@ public class NetServer implements ApplicationListener{
 
     @Override
     public void update(){
+        //without block syncs, building state in cached world data is never checked or corrected, so it is only shared within a frame
+        if(!Core.settings.getBool("blocksync")){
+            worldCache.invalidate();
+        }
 
         if(!headless && !closing && net.server() && state.isMenu()){
             closing = true;
@@ -802,22 +867,53 @@ public class NetServer implements ApplicationListener{
         }
     }
 
-    /** Sends a block snapshot to all players. */
-    public void writeBlockSnapshots() throws IOException{
+    /**
+     * Sends a block snapshot to all players. Only buildings that changed since the last one are included, except for periodic full snapshots.
+     * @return the number of buildings that were sent.
+     */
+    public int writeBlockSnapshots() throws IOException{
+        return writeBlockSnapshots(null);
+    }
+
+    /**
+     * Sends a snapshot of every building to a single connection, without affecting what the next broadcast contains.
+     * @return the number of buildings that were sent.
+     */
+    public int writeBlockSnapshots(@Nullable NetConnection con) throws IOException{
         syncStream.reset();
 
+        boolean broadcast = con == null, full = !broadcast || blockSnapshots++ % blockRefreshInterval == 0, changed = false;
+        //full broadcasts rebuild the hashes, so that buildings that no longer exist are forgotten
+        IntIntMap hashes = broadcast && full ? nextBlockHashes : blockHashes;
+        if(broadcast && full) nextBlockHashes.clear();
+
         short sent = 0;
+        int total = 0;
         for(Building entity : Groups.build){
             if(!entity.block.sync) continue;
+
+            blockStream.reset();
+            entity.writeAll(blockWrites);
+
+            int pos = entity.pos(), hash = hash(blockStream.getBytes(), 0, blockStream.size());
+            boolean same = blockHashes.containsKey(pos) && blockHashes.get(pos, 0) == hash;
+
+            if(broadcast){
+                changed |= !same;
+                hashes.put(pos, hash);
+            }
+
+            if(!full && same) continue;
+
             sent ++;
+            total ++;
 
-            dataStream.writeInt(entity.pos());
-            entity.writeAll(Writes.get(dataStream));
+            dataStream.writeInt(pos);
+            dataStream.write(blockStream.getBytes(), 0, blockStream.size());
 
             if(syncStream.size() > maxSnapshotSize){
                 dataStream.close();
-                byte[] stateBytes = syncStream.toByteArray();
-                Call.blockSnapshot(sent, (short)stateBytes.length, net.compressSnapshot(stateBytes));
+                sendBlockSnapshot(con, sent);
                 sent = 0;
                 syncStream.reset();
             }
@@ -825,12 +921,52 @@ public class NetServer implements ApplicationListener{
 
         if(sent > 0){
             dataStream.close();
-            byte[] stateBytes = syncStream.toByteArray();
+            sendBlockSnapshot(con, sent);
+        }
+
+        if(broadcast && full){
+            nextBlockHashes = blockHashes;
+            blockHashes = hashes;
+        }
+
+        //building state is also part of the cached world data; joining players get a full snapshot once loaded,
+        //so it only has to be refreshed this often
+        if(changed){
+            worldCache.invalidate();
+        }
+
+        return total;
+    }
+
+    private void sendBlockSnapshot(@Nullable NetConnection con, short sent){
+        byte[] stateBytes = syncStream.toByteArray();
+        if(con == null){
             Call.blockSnapshot(sent, (short)stateBytes.length, net.compressSnapshot(stateBytes));
+        }else{
+            Call.blockSnapshot(con, sent, (short)stateBytes.length, net.compressSnapshot(stateBytes));
         }
     }
 
+    /** Sends entity snapshots to every connected player. Entity data is serialized once and shared between all of them. */
+    public void writeEntitySnapshots(){
+        syncTick++;
+
+        Groups.player.each(p -> !p.isLocal() && p.con != null && p.con.isConnected() && p.con.hasConnected, player -> {
+            try{
+                writeSnapshot(player);
+            }catch(IOException e){
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /** Sends an entity snapshot to a single player. Entity data is serialized again; use {@link #writeEntitySnapshots()} for all players. */
     public void writeEntitySnapshot(Player player) throws IOException{
+        syncTick++;
+        writeSnapshot(player);
+    }
+
+    private void writeSnapshot(Player player) throws IOException{
         syncStream.reset();
         Seq<CoreBuild> cores = state.teams.cores(player.team());
 
@@ -847,36 +983,152 @@ public class NetServer implements ApplicationListener{
         //write basic state data.
         Call.stateSnapshot(player.con, state.wavetime, state.wave, state.enemies, state.serverPaused, state.gameOver, universe.seconds(), (short)stateBytes.length, net.compressSnapshot(stateBytes));
 
-        viewport.setSize(player.con.viewWidth, player.con.viewHeight).setCenter(player.con.viewX, player.con.viewY);
+        NetConnection con = player.con;
+        int frame = con.snapshotsSent++;
+
+        viewport.setSize(con.viewWidth, con.viewHeight).setCenter(con.viewX, con.viewY).grow(viewMargin * 2f);
+
+        cacheEntitySync();
+        byte[] syncData = entityStream.getBytes();
+        int[] offsets = entityOffsets.items;
 
         syncStream.reset();
 
-        int sent = 0;
+        int sent = 0, start = 0, last = -1;
+        boolean contiguous = true;
 
-        for(Syncc entity : Groups.sync){
-            //write all entities now
-            dataStream.writeInt(entity.id()); //write id
+        for(int i = 0; i < syncEntities.size; i++){
+            Syncc entity = syncEntities.get(i);
+            //removed after the data was cached, e.g. by a disconnect during this sync
+            if(!entity.isAdded()) continue;
+
+            int id = entity.id();
+            int lastFrame = con.syncFrames.get(id, -1);
+            boolean known = lastFrame != -1;
+
+            //entities outside the player's view are only synced occasionally
+            if(known && frame - lastFrame < farSyncInterval && entity instanceof Posc){
+                Posc pos = (Posc)entity;
+                if(!viewport.contains(pos.getX(), pos.getY())) continue;
+            }
+
+            int hash = entityHashes.items[i];
+
+            //skip entities whose sync data has not changed since the last snapshot, unless a keyframe is due.
+            //unchanged data is still sent once, so clients interpolate towards it instead of extrapolating past it
+            boolean unchanged = known && con.syncHashes.get(id, 0) == hash;
+            if(unchanged && con.syncSettled.contains(id) && frame - lastFrame < keyframeInterval) continue;
+
+            if(unchanged){
+                con.syncSettled.add(id);
+            }else{
+                con.syncSettled.remove(id);
+            }
+            con.syncHashes.put(id, hash);
+            con.syncFrames.put(id, frame);
+
+            if(sent == 0){
+                start = i;
+                contiguous = true;
+            }else if(i != last + 1){
+                contiguous = false;
+            }
+            last = i;
+
+            dataStream.writeInt(id); //write id
             dataStream.writeByte(entity.classId()); //write type ID
-            entity.writeSync(Writes.get(dataStream)); //write entity
+            dataStream.write(syncData, offsets[i], offsets[i + 1] - offsets[i]); //write entity
 
             sent++;
 
             if(syncStream.size() > maxSnapshotSize){
-                dataStream.close();
-                byte[] syncBytes = syncStream.toByteArray();
-                Call.entitySnapshot(player.con, (short)sent, (short)syncBytes.length, net.compressSnapshot(syncBytes));
+                sendEntitySnapshot(con, sent, contiguous ? start : -1, i + 1);
                 sent = 0;
                 syncStream.reset();
             }
         }
 
         if(sent > 0){
-            dataStream.close();
+            sendEntitySnapshot(con, sent, contiguous ? start : -1, last + 1);
+        }
 
-            byte[] syncBytes = syncStream.toByteArray();
-            Call.entitySnapshot(player.con, (short)sent, (short)syncBytes.length, net.compressSnapshot(syncBytes));
+        //forget baselines of entities that no longer exist
+        if(frame % keyframeInterval == 0){
+            pruneBaselines(con);
+        }
+    }
+
+    /** Sends the contents of the sync stream. Snapshots of a whole range of entities are only compressed once per sync. */
+    private void sendEntitySnapshot(NetConnection con, int sent, int start, int end) throws IOException{
+        dataStream.close();
+        byte[] syncBytes = syncStream.toByteArray();
+        byte[] compressed;
+
+        if(start != -1){
+            long key = ((long)start << 32) | end;
+            compressed = compressedSnapshots.get(key);
+            if(compressed == null){
+                compressed = net.compressSnapshot(syncBytes);
+                compressedSnapshots.put(key, compressed);
+            }
+        }else{
+            compressed = net.compressSnapshot(syncBytes);
         }
 
+        Call.entitySnapshot(con, (short)sent, (short)syncBytes.length, compressed);
+    }
+
+    /** Serializes every synced entity, unless that already happened during this sync. */
+    private void cacheEntitySync(){
+        if(cachedSyncTick == syncTick) return;
+        cachedSyncTick = syncTick;
+
+        entityStream.reset();
+        syncEntities.clear();
+        entityOffsets.clear();
+        entityHashes.clear();
+        compressedSnapshots.clear();
+
+        for(Syncc entity : Groups.sync){
+            int offset = entityStream.size();
+            entity.writeSync(entityWrites);
+
+            syncEntities.add(entity);
+            entityOffsets.add(offset);
+            entityHashes.add(hash(entityStream.getBytes(), offset, entityStream.size() - offset));
+        }
+
+        entityOffsets.add(entityStream.size());
+    }
+
+    private void pruneBaselines(NetConnection con){
+        IntSeq removed = new IntSeq();
+        for(IntIntMap.Entry entry : con.syncFrames.entries()){
+            if(Groups.sync.getByID(entry.key) == null){
+                removed.add(entry.key);
+            }
+        }
+
+        for(int i = 0; i < removed.size; i++){
+            con.syncFrames.remove(removed.items[i], 0);
+            con.syncHashes.remove(removed.items[i], 0);
+            con.syncSettled.remove(removed.items[i]);
+        }
+    }
+
+    /** FNV-1a with a murmur3 finalizer; a polynomial hash collides too easily on small float changes. */
+    private static int hash(byte[] bytes, int offset, int length){
+        int h = 0x811c9dc5;
+        for(int i = offset; i < offset + length; i++){
+            h = (h ^ (bytes[i] & 0xff)) * 0x01000193;
+        }
+        h ^= length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
     }
 
     String fixName(String name){
@@ -935,19 +1187,20 @@ public class NetServer implements ApplicationListener{
             Groups.player.each(p -> !p.isLocal(), player -> {
                 if(player.con == null || !player.con.isConnected()){
                     onDisconnect(player, "disappeared");
-                    return;
                 }
+            });
 
-                NetConnection connection = player.con;
-
-                if(!player.timer(0, serverSyncTime) || !connection.hasConnected) return;
+            //entity snapshots are sent to every player at once, so their data is only serialized once
+            if(timer.get(timerEntitySync, serverSyncTime)){
+                writeEntitySnapshots();
+            }
 
-                try{
-                    writeEntitySnapshot(player);
-                }catch(IOException e){
-                    e.printStackTrace();
+            if(Core.settings.getBool("blocksync")){
+                for(NetConnection con : blockSyncRequests){
+                    if(con.isConnected()) writeBlockSnapshots(con);
                 }
-            });
+            }
+            blockSyncRequests.clear();
 
             if(Groups.player.size() > 0 && Core.settings.getBool("blocksync") && timer.get(timerBlockSync, blockSyncTime)){
                 writeBlockSnapshots();
@@ -27,6 +27,13 @@ public class Damage{
     private static GridBits bits = new GridBits(30, 30);
     private static IntQueue propagation = new IntQueue();
     private static IntSet collidedBlocks = new IntSet();
+    //tile damage sources queued for the next frame, and the ones currently being applied
+    private static TileDamageBatch queuedTileDamage = new TileDamageBatch(), appliedTileDamage = new TileDamageBatch();
+    private static boolean tileDamagePosted;
+    //summed tile damage per building
+    private static Seq<Building> damagedBuildings = new Seq<>();
+    private static FloatSeq buildingDamage = new FloatSeq();
+    private static IntIntMap damageIndices = new IntIntMap();
     private static Building tmpBuilding;
     private static Unit tmpUnit;
 
@@ -332,53 +339,135 @@ public class Damage{
         }
     }
 
+    /**
+     * Queues damage that spreads out from a tile, losing strength with distance and with the health of every building it passes.
+     * All tile damage queued during a frame is applied together in the next one, with damage summed up per building.
+     */
     public static void tileDamage(Team team, int startx, int starty, int baseRadius, float baseDamage){
+        queuedTileDamage.add(team, startx, starty, baseRadius, baseDamage);
+
         //tile damage is posted, so that destroying a block that causes a chain explosion will run in the next frame
         //this prevents recursive damage calls from messing up temporary variables
-        Core.app.post(() -> {
+        if(!tileDamagePosted){
+            tileDamagePosted = true;
+            Core.app.post(Damage::applyTileDamage);
+        }
+    }
+
+    /** Applies all tile damage queued so far. Called automatically in the frame after the damage was queued. */
+    public static void applyTileDamage(){
+        //anything queued while damage is applied belongs to the next frame
+        TileDamageBatch batch = queuedTileDamage;
+        queuedTileDamage = appliedTileDamage;
+        appliedTileDamage = batch;
+        tileDamagePosted = false;
+
+        for(int i = 0; i < batch.size; i++){
+            propagateTileDamage(batch.teams.get(i), batch.xs.get(i), batch.ys.get(i), batch.radii.get(i), batch.damages.get(i));
+        }
+        batch.clear();
 
-            bits.clear();
-            propagation.clear();
-            int bitOffset = bits.width() / 2;
+        //each building is damaged once, after all propagation is done
+        for(int i = 0; i < damagedBuildings.size; i++){
+            Building build = damagedBuildings.get(i);
+            if(build.isValid()){
+                build.damage(buildingDamage.get(i));
+            }
+        }
 
-            propagation.addFirst(PropCell.get((byte)0, (byte)0, (short)baseDamage));
-            //clamp radius to fit bits
-            int radius = Math.min(baseRadius, bits.width() / 2);
+        damagedBuildings.clear();
+        buildingDamage.clear();
+        damageIndices.clear();
+    }
 
-            while(!propagation.isEmpty()){
-                int prop = propagation.removeLast();
-                int x = PropCell.x(prop);
-                int y = PropCell.y(prop);
-                int damage = PropCell.damage(prop);
-                //manhattan distance used for calculating falloff, results in a diamond pattern
-                int dst = Math.abs(x) + Math.abs(y);
+    private static void propagateTileDamage(Team team, int startx, int starty, int baseRadius, float baseDamage){
+        bits.clear();
+        propagation.clear();
+        int bitOffset = bits.width() / 2;
 
-                int scaledDamage = (int)(damage * (1f - (float)dst / radius));
+        propagation.addFirst(PropCell.get((byte)0, (byte)0, (short)baseDamage));
+        //clamp radius to fit bits
+        int radius = Math.min(baseRadius, bits.width() / 2);
 
-                bits.set(bitOffset + x, bitOffset + y);
-                Tile tile = world.tile(startx + x, starty + y);
+        while(!propagation.isEmpty()){
+            int prop = propagation.removeLast();
+            int x = PropCell.x(prop);
+            int y = PropCell.y(prop);
+            int damage = PropCell.damage(prop);
+            //manhattan distance used for calculating falloff, results in a diamond pattern
+            int dst = Math.abs(x) + Math.abs(y);
 
-                if(scaledDamage <= 0 || tile == null) continue;
+            int scaledDamage = (int)(damage * (1f - (float)dst / radius));
 
-                //apply damage to entity if needed
-                if(tile.build != null && tile.team() != team){
-                    int health = (int)tile.build.health();
-                    if(tile.build.health() > 0){
-                        tile.build.damage(scaledDamage);
-                        scaledDamage -= health;
+            bits.set(bitOffset + x, bitOffset + y);
+            Tile tile = world.tile(startx + x, starty + y);
 
-                        if(scaledDamage <= 0) continue;
-                    }
+            if(scaledDamage <= 0 || tile == null) continue;
+
+            //accumulate damage for the entity if needed
+            if(tile.build != null && tile.team() != team){
+                float remaining = remainingHealth(tile.build);
+                int health = (int)remaining;
+                if(remaining > 0){
+                    queueBuildingDamage(tile.build, scaledDamage);
+                    scaledDamage -= health;
+
+                    if(scaledDamage <= 0) continue;
                 }
+            }
 
-                for(Point2 p : Geometry.d4){
-                    if(!bits.get(bitOffset + x + p.x, bitOffset + y + p.y)){
-                        propagation.addFirst(PropCell.get((byte)(x + p.x), (byte)(y + p.y), (short)scaledDamage));
-                    }
+            for(Point2 p : Geometry.d4){
+                if(!bits.get(bitOffset + x + p.x, bitOffset + y + p.y)){
+                    propagation.addFirst(PropCell.get((byte)(x + p.x), (byte)(y + p.y), (short)scaledDamage));
                 }
             }
-        });
+        }
+    }
+
+    /** @return the health a building would have left after the damage accumulated so far is applied. */
+    private static float remainingHealth(Building build){
+        int index = damageIndices.get(build.id(), -1);
+        if(index == -1) return build.health();
+
+        float multiplier = state.rules.blockHealthMultiplier;
+        return Mathf.zero(multiplier) ? 0f : build.health() - buildingDamage.get(index) / multiplier;
+    }
 
+    private static void queueBuildingDamage(Building build, float amount){
+        int index = damageIndices.get(build.id(), -1);
+        if(index == -1){
+            damageIndices.put(build.id(), damagedBuildings.size);
+            damagedBuildings.add(build);
+            buildingDamage.add(amount);
+        }else{
+            buildingDamage.items[index] += amount;
+        }
+    }
+
+    /** Tile damage sources, stored as parallel arrays. */
+    private static class TileDamageBatch{
+        final Seq<Team> teams = new Seq<>();
+        final IntSeq xs = new IntSeq(), ys = new IntSeq(), radii = new IntSeq();
+        final FloatSeq damages = new FloatSeq();
+        int size;
+
+        void add(Team team, int x, int y, int radius, float damage){
+            teams.add(team);
+            xs.add(x);
+            ys.add(y);
+            radii.add(radius);
+            damages.add(damage);
+            size++;
+        }
+
+        void clear(){
+            teams.clear();
+            xs.clear();
+            ys.clear();
+            radii.clear();
+            damages.clear();
+            size = 0;
+        }
     }
 
     private static void completeDamage(Team team, float x, float y, float radius, float damage){
@@ -3,14 +3,22 @@ package mindustry.entities;
 import arc.math.*;
 import arc.math.geom.*;
 import arc.struct.*;
+import mindustry.game.*;
+import mindustry.game.Teams.*;
 import mindustry.gen.*;
 import mindustry.world.*;
 
+import java.util.concurrent.*;
+
 import static mindustry.Vars.*;
 
 public class EntityCollisions{
     //range for tile collision scanning
     private static final int r = 1;
+    //minimum group size for parallel collision checks
+    private static final int parallelThreshold = 512;
+    //amount of entities handled by each parallel task
+    private static final int chunkSize = 128;
     //move in 1-unit chunks
     private static final float seg = 1f;
 
@@ -24,6 +32,18 @@ public class EntityCollisions{
     //entity collisions
     private Seq<Hitboxc> arrOut = new Seq<>();
 
+    /** Whether collision candidates of large groups are found on multiple threads. */
+    public boolean parallel = true;
+
+    //parallel collisions
+    private final Seq<Hitboxc> snapshot = new Seq<>();
+    private final IntSet snapshotIDs = new IntSet();
+    private final ObjectMap<QuadTree, SpatialGrid<Unit>> grids = new ObjectMap<>();
+    private final SpatialGrid<Unit>[] teamGrids = new SpatialGrid[Team.all.length];
+    private final Rect bounds = new Rect();
+    private final Seq<CandidateChunk> chunks = new Seq<>();
+    private final Seq<Future<?>> futures = new Seq<>();
+
     public void moveCheck(Hitboxc entity, float deltax, float deltay, SolidPred solidCheck){
         if(!solidCheck.solid(entity.tileX(), entity.tileY())){
             move(entity, deltax, deltay, solidCheck);
@@ -116,12 +136,12 @@ public class EntityCollisions{
     @SuppressWarnings("unchecked")
     public <T extends Hitboxc> void updatePhysics(EntityGroup<T> group){
 
-        QuadTree tree = group.tree();
-        tree.clear();
+        SpatialIndex index = group.index();
+        index.clear();
 
         group.each(s -> {
             s.updateLastPosition();
-            tree.insert(s);
+            index.insert(s);
         });
     }
 
@@ -218,32 +238,173 @@ public class EntityCollisions{
 
     @SuppressWarnings("unchecked")
     public <T extends Hitboxc> void collide(EntityGroup<T> groupa){
+        if(parallel && groupa.size() >= parallelThreshold){
+            collideParallel(groupa);
+            return;
+        }
 
-        groupa.each(solid -> {
-            solid.hitbox(r1);
-            r1.x += (solid.lastX() - solid.getX());
-            r1.y += (solid.lastY() - solid.getY());
+        groupa.each(this::collideEntity);
+    }
+
+    private void collideEntity(Hitboxc solid){
+        sweep(solid);
+
+        arrOut.clear();
+
+        //get all targets based on what entity wants to collide with
+        solid.getCollisions(tree -> tree.intersect(r2, arrOut));
+
+        resolve(solid, arrOut, 0, arrOut.size);
+    }
 
-            solid.hitbox(r2);
-            r2.merge(r1);
+    /** Sets r2 to the hitbox of an entity, extended to cover its movement since the last frame. */
+    private void sweep(Hitboxc solid){
+        solid.hitbox(r1);
+        r1.x += (solid.lastX() - solid.getX());
+        r1.y += (solid.lastY() - solid.getY());
 
-            arrOut.clear();
+        solid.hitbox(r2);
+        r2.merge(r1);
+    }
+
+    /** Checks collisions of an entity with candidates in [from, to) of an array, in order. r2 must be set by {@link #sweep(Hitboxc)}. */
+    private void resolve(Hitboxc solid, Seq<Hitboxc> candidates, int from, int to){
+        for(int i = from; i < to; i++){
+            Hitboxc sc = candidates.get(i);
+            sc.hitbox(r1);
+            if(r2.overlaps(r1)){
+                checkCollide(solid, sc);
+                //break out of loop when this object hits something
+                if(!solid.isAdded()) return;
+            }
+        }
+    }
 
-            //get all targets based on what entity wants to collide with
-            solid.getCollisions(tree -> tree.intersect(r2, arrOut));
+    /**
+     * Finds collision candidates of all entities in parallel, then resolves collisions sequentially in a fixed order.
+     * Candidate discovery only reads unit positions, which do not change during collision resolution.
+     * Quadtrees are not meant to be queried concurrently, so each team's units are copied into a grid first.
+     */
+    private <T extends Hitboxc> void collideParallel(EntityGroup<T> groupa){
+        snapshot.clear();
+        groupa.each(snapshot::add);
+        snapshotIDs.clear();
+
+        //team data and trees are created lazily when requested; make sure that happens here, not on a worker thread
+        for(int i = 0; i < snapshot.size; i++){
+            snapshot.get(i).getCollisions(tree -> {});
+        }
 
-            for(Hitboxc sc : arrOut){
-                sc.hitbox(r1);
-                if(r2.overlaps(r1)){
-                    checkCollide(solid, sc);
-                    //break out of loop when this object hits something
-                    if(!solid.isAdded()) return;
+        //build a grid for every team with units, mapped by the tree that entities request
+        grids.clear();
+        world.getQuadBounds(bounds);
+
+        for(Team team : Team.all){
+            TeamData data = team.data();
+            if(data.tree != null && data.units.size > 0){
+                if(teamGrids[team.id] == null) teamGrids[team.id] = new SpatialGrid<>();
+                SpatialGrid<Unit> grid = teamGrids[team.id];
+
+                grid.resize(bounds.x, bounds.y, bounds.width, bounds.height);
+                for(Unit unit : data.units){
+                    grid.insert(unit);
                 }
+                grid.build();
+                grids.put(data.tree, grid);
+            }
+        }
+
+        int chunkCount = (snapshot.size + chunkSize - 1) / chunkSize;
+        while(chunks.size < chunkCount){
+            chunks.add(new CandidateChunk());
+        }
+
+        //find candidates; each task only writes to its own chunk
+        futures.clear();
+        for(int i = 0; i < chunkCount; i++){
+            CandidateChunk chunk = chunks.get(i);
+            int start = i * chunkSize, end = Math.min(start + chunkSize, snapshot.size);
+            futures.add(ForkJoinPool.commonPool().submit(() -> chunk.find(start, end)));
+        }
+
+        for(Future<?> future : futures){
+            try{
+                future.get();
+            }catch(Throwable t){
+                throw new RuntimeException(t);
+            }
+        }
+        futures.clear();
+
+        //resolve collisions in order
+        for(int i = 0; i < snapshot.size; i++){
+            Hitboxc solid = snapshot.get(i);
+            snapshotIDs.add(solid.id());
+            if(!solid.isAdded()) continue;
+
+            CandidateChunk chunk = chunks.get(i / chunkSize);
+            int local = i % chunkSize;
+
+            if(chunk.fallback[local]){
+                collideEntity(solid);
+            }else{
+                sweep(solid);
+                resolve(solid, chunk.candidates, chunk.offsets[local], chunk.offsets[local + 1]);
+            }
+        }
+
+        //entities created while resolving collisions are handled sequentially, as they would be when iterating normally
+        groupa.each(solid -> {
+            if(!snapshotIDs.contains(solid.id())){
+                snapshotIDs.add(solid.id());
+                collideEntity(solid);
             }
         });
+
+        snapshot.clear();
     }
 
     public interface SolidPred{
         boolean solid(int x, int y);
     }
+
+    /** Collision candidates of a range of entities, found on a worker thread. */
+    private class CandidateChunk{
+        final Seq<Hitboxc> candidates = new Seq<>();
+        /** candidates of entity i are in [offsets[i], offsets[i + 1]) */
+        final int[] offsets = new int[chunkSize + 1];
+        /** whether an entity requested a tree that has no grid, and must be checked sequentially */
+        final boolean[] fallback = new boolean[chunkSize];
+        final Rect rect = new Rect(), swept = new Rect(), tmp = new Rect();
+
+        void find(int start, int end){
+            candidates.clear();
+
+            for(int i = start; i < end; i++){
+                Hitboxc solid = snapshot.get(i);
+                int local = i - start;
+
+                offsets[local] = candidates.size;
+                fallback[local] = false;
+
+                solid.hitbox(rect);
+                rect.x += (solid.lastX() - solid.getX());
+                rect.y += (solid.lastY() - solid.getY());
+
+                solid.hitbox(swept);
+                swept.merge(rect);
+
+                solid.getCollisions(tree -> {
+                    SpatialGrid<Unit> grid = grids.get(tree);
+                    if(grid != null){
+                        grid.intersect(swept.x, swept.y, swept.width, swept.height, tmp, candidates::add);
+                    }else{
+                        fallback[local] = true;
+                    }
+                });
+            }
+
+            offsets[end - start] = candidates.size;
+        }
+    }
 }
@@ -4,6 +4,7 @@ import arc.*;
 import arc.func.*;
 import arc.math.geom.*;
 import arc.struct.*;
+import mindustry.entities.SpatialIndex.*;
 import mindustry.gen.*;
 
 import java.util.*;
@@ -20,7 +21,9 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     private final Rect viewport = new Rect();
     private final Rect intersectRect = new Rect();
     private IntMap<T> map;
-    private QuadTree tree;
+    /** maps entity IDs to their position in the array, for constant-time removal */
+    private final IntIntMap indices = new IntIntMap();
+    private SpatialIndex spatialIndex;
     private boolean clearing;
 
     private int index;
@@ -30,10 +33,15 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     }
 
     public EntityGroup(Class<T> type, boolean spatial, boolean mapping){
+        this(type, spatial, mapping, false);
+    }
+
+    /** @param grid whether to use a uniform grid instead of a quadtree as the spatial index. Only applicable if spatial is true. */
+    public EntityGroup(Class<T> type, boolean spatial, boolean mapping, boolean grid){
         array = new Seq<>(false, 32, type);
 
         if(spatial){
-            tree = new QuadTree<>(new Rect(0, 0, 0, 0));
+            spatialIndex = grid ? new SpatialGrid<>() : new QuadTreeIndex<>();
         }
 
         if(mapping){
@@ -43,6 +51,11 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
 
     public void sort(Comparator<? super T> comp){
         array.sort(comp);
+
+        indices.clear();
+        for(int i = 0; i < array.size; i++){
+            indices.put(array.items[i].id(), i);
+        }
     }
 
     public void collide(){
@@ -108,26 +121,31 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     public void intersect(float x, float y, float width, float height, Cons<? super T> out){
         //don't waste time for empty groups
         if(isEmpty()) return;
-        tree.intersect(x, y, width, height, out);
+        spatialIndex.intersect(x, y, width, height, out);
     }
 
     public Seq<T> intersect(float x, float y, float width, float height){
         intersectArray.clear();
         //don't waste time for empty groups
         if(isEmpty()) return intersectArray;
-        tree.intersect(intersectRect.set(x, y, width, height), intersectArray);
+        spatialIndex.intersect(intersectRect.set(x, y, width, height), intersectArray);
         return intersectArray;
     }
 
     public QuadTree tree(){
-        if(tree == null) throw new RuntimeException("This group does not support quadtrees! Enable quadtrees when creating it.");
-        return tree;
+        if(!(spatialIndex instanceof QuadTreeIndex)) throw new RuntimeException("This group does not support quadtrees! Enable quadtrees when creating it.");
+        return ((QuadTreeIndex)spatialIndex).tree();
+    }
+
+    public SpatialIndex index(){
+        if(spatialIndex == null) throw new RuntimeException("This group is not spatial! Enable spatial indexing when creating it.");
+        return spatialIndex;
     }
 
-    /** Resizes the internal quadtree, if it is enabled.*/
+    /** Resizes the internal spatial index, if it is enabled.*/
     public void resize(float x, float y, float w, float h){
-        if(tree != null){
-            tree = new QuadTree<>(new Rect(x, y, w, h));
+        if(spatialIndex != null){
+            spatialIndex.resize(x, y, w, h);
         }
     }
 
@@ -153,6 +171,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
 
     public void add(T type){
         if(type == null) throw new RuntimeException("Cannot add a null entity!");
+        indices.put(type.id(), array.size);
         array.add(type);
 
         if(mappingEnabled()){
@@ -163,9 +182,22 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     public void remove(T type){
         if(clearing) return;
         if(type == null) throw new RuntimeException("Cannot remove a null entity!");
-        int idx = array.indexOf(type, true);
+        int idx = indices.get(type.id(), -1);
+
+        //fall back to a search if the ID was changed after adding
+        if(idx == -1 || idx >= array.size || array.items[idx] != type){
+            idx = array.indexOf(type, true);
+        }
+
         if(idx != -1){
+            //the array is unordered, so the last entity is moved into the removed index
             array.remove(idx);
+            if(indices.get(type.id(), -1) == idx){
+                indices.remove(type.id(), -1);
+            }
+            if(idx < array.size){
+                indices.put(array.items[idx].id(), idx);
+            }
             if(map != null){
                 map.remove(type.id());
             }
@@ -182,6 +214,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
 
         array.each(Entityc::remove);
         array.clear();
+        indices.clear();
         if(map != null)
             map.clear();
 
@@ -0,0 +1,148 @@
+package mindustry.entities;
+
+import arc.func.*;
+import arc.math.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+
+import java.util.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * A uniform grid of cells, each holding the objects whose centers lie in it.
+ * Much cheaper to rebuild than a quadtree, but only efficient for objects of similar and relatively small size, such as bullets.
+ * Queries are not thread-safe, as the grid is sorted lazily on the first query after insertion;
+ * call {@link #build()} and pass a temporary rectangle to each query to use it from multiple threads.
+ */
+@SuppressWarnings("unchecked")
+public class SpatialGrid<T extends QuadTreeObject> implements SpatialIndex<T>{
+    /** size of a cell in world units */
+    private static final float cellSize = tilesize * 4;
+
+    private final Rect rect = new Rect();
+
+    private float x, y;
+    private int width = 1, height = 1;
+
+    /** objects in insertion order, and their cell indices */
+    private Object[] inserted = new Object[64];
+    private int[] insertedCells = new int[64];
+    private int size;
+    /** objects sorted by cell; the objects of a cell are at [offsets[cell], offsets[cell + 1]) */
+    private Object[] sorted = new Object[64];
+    private int[] offsets = new int[2];
+    /** largest hitbox dimension of all inserted objects, used to expand queries */
+    private float maxSize;
+    private boolean dirty;
+
+    @Override
+    public void clear(){
+        //release references for garbage collection
+        for(int i = 0; i < size; i++){
+            inserted[i] = null;
+            sorted[i] = null;
+        }
+        size = 0;
+        maxSize = 0f;
+        dirty = true;
+    }
+
+    @Override
+    public void insert(T obj){
+        if(size == inserted.length){
+            int cap = size * 7 / 4 + 8;
+            Object[] newInserted = new Object[cap];
+            int[] newCells = new int[cap];
+            System.arraycopy(inserted, 0, newInserted, 0, size);
+            System.arraycopy(insertedCells, 0, newCells, 0, size);
+            inserted = newInserted;
+            insertedCells = newCells;
+            sorted = new Object[cap];
+        }
+
+        obj.hitbox(rect);
+        maxSize = Math.max(maxSize, Math.max(rect.width, rect.height));
+
+        int cx = Mathf.clamp((int)((rect.x + rect.width / 2f - x) / cellSize), 0, width - 1);
+        int cy = Mathf.clamp((int)((rect.y + rect.height / 2f - y) / cellSize), 0, height - 1);
+
+        inserted[size] = obj;
+        insertedCells[size] = cx + cy * width;
+        size ++;
+        dirty = true;
+    }
+
+    @Override
+    public void intersect(float x, float y, float width, float height, Cons<? super T> out){
+        build();
+        intersect(x, y, width, height, rect, out);
+    }
+
+    /** Thread-safe variant of {@link #intersect(float, float, float, float, Cons)}, as long as {@link #build()} was called after the last insertion. */
+    public void intersect(float x, float y, float width, float height, Rect tmp, Cons<? super T> out){
+        if(size == 0) return;
+
+        //objects are stored by center, so expand the searched cells by the largest possible half-size
+        float pad = maxSize / 2f;
+        int minx = Mathf.clamp((int)((x - pad - this.x) / cellSize), 0, this.width - 1), miny = Mathf.clamp((int)((y - pad - this.y) / cellSize), 0, this.height - 1);
+        int maxx = Mathf.clamp((int)((x + width + pad - this.x) / cellSize), 0, this.width - 1), maxy = Mathf.clamp((int)((y + height + pad - this.y) / cellSize), 0, this.height - 1);
+
+        for(int cy = miny; cy <= maxy; cy++){
+            int row = cy * this.width;
+            //cells in a row are contiguous in the sorted array
+            for(int i = offsets[row + minx], end = offsets[row + maxx + 1]; i < end; i++){
+                T obj = (T)sorted[i];
+                obj.hitbox(tmp);
+                if(tmp.overlaps(x, y, width, height)){
+                    out.get(obj);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void intersect(Rect area, Seq<? super T> out){
+        intersect(area.x, area.y, area.width, area.height, out::add);
+    }
+
+    @Override
+    public void resize(float x, float y, float width, float height){
+        clear();
+        this.x = x;
+        this.y = y;
+        this.width = Math.max(Mathf.ceil(width / cellSize), 1);
+        this.height = Math.max(Mathf.ceil(height / cellSize), 1);
+        if(offsets.length != this.width * this.height + 1){
+            offsets = new int[this.width * this.height + 1];
+        }
+    }
+
+    /** Sorts inserted objects by cell with a counting sort. Called automatically before queries. */
+    public void build(){
+        if(!dirty) return;
+        dirty = false;
+
+        int[] offsets = this.offsets;
+        Arrays.fill(offsets, 0);
+
+        for(int i = 0; i < size; i++){
+            offsets[insertedCells[i] + 1] ++;
+        }
+
+        for(int i = 1; i < offsets.length; i++){
+            offsets[i] += offsets[i - 1];
+        }
+
+        //fill using the starting offsets, then shift them back afterwards
+        for(int i = 0; i < size; i++){
+            sorted[offsets[insertedCells[i]] ++] = inserted[i];
+        }
+
+        for(int i = offsets.length - 1; i > 0; i--){
+            offsets[i] = offsets[i - 1];
+        }
+        offsets[0] = 0;
+    }
+}
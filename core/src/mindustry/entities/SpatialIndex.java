@@ -0,0 +1,59 @@
+package mindustry.entities;
+
+import arc.func.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+
+/** A structure for looking up objects by area. Spatial indices are cleared and rebuilt every frame. */
+public interface SpatialIndex<T extends QuadTreeObject>{
+
+    /** Removes all objects. */
+    void clear();
+
+    /** Adds an object at its current hitbox. */
+    void insert(T obj);
+
+    /** Passes every object whose hitbox overlaps the rectangle to the consumer. */
+    void intersect(float x, float y, float width, float height, Cons<? super T> out);
+
+    /** Adds every object whose hitbox overlaps the rectangle to the output. */
+    void intersect(Rect rect, Seq<? super T> out);
+
+    /** Clears this index and sets the area that it covers. */
+    void resize(float x, float y, float width, float height);
+
+    /** A spatial index backed by a quadtree. Best for entities of very different sizes. */
+    class QuadTreeIndex<T extends QuadTreeObject> implements SpatialIndex<T>{
+        private QuadTree<T> tree = new QuadTree<>(new Rect(0, 0, 0, 0));
+
+        public QuadTree<T> tree(){
+            return tree;
+        }
+
+        @Override
+        public void clear(){
+            tree.clear();
+        }
+
+        @Override
+        public void insert(T obj){
+            tree.insert(obj);
+        }
+
+        @Override
+        public void intersect(float x, float y, float width, float height, Cons<? super T> out){
+            tree.intersect(x, y, width, height, out);
+        }
+
+        @Override
+        public void intersect(Rect rect, Seq<? super T> out){
+            tree.intersect(rect, out);
+        }
+
+        @Override
+        public void resize(float x, float y, float width, float height){
+            tree = new QuadTree<>(new Rect(x, y, width, height));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package mindustry.entities;
+
+import arc.struct.*;
+import arc.util.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Caches spatial unit queries for the duration of a single update.
+ * Query positions are snapped to cells and ranges are rounded up to buckets, so every search around a similar area
+ * shares one lookup in the team's unit tree. Results are candidates only; callers still apply exact distance checks,
+ * filters and sorting. Not thread-safe; only use from the main thread.
+ */
+public class UnitQueryCache{
+    /** Size of the cells that query positions are snapped to. */
+    public static final float cellSize = tilesize * 8f;
+    /** Query ranges are rounded up to a multiple of this. */
+    public static final float rangeStep = tilesize * 4f;
+
+    private final LongMap<Seq<Unit>> entries = new LongMap<>();
+    private final Seq<Seq<Unit>> used = new Seq<>(), free = new Seq<>();
+    private float lastTime = Float.NaN;
+
+    /** Total amount of queries answered from the cache. */
+    public long hits;
+    /** Total amount of queries that required a lookup. */
+    public long misses;
+
+    /**
+     * @return units of this team whose hitboxes may overlap the circle. Callers must check the exact distance.
+     * The returned sequence is owned by the cache and must not be modified or held onto.
+     */
+    public Seq<Unit> units(Team team, float x, float y, float range){
+        if(lastTime != Time.time()){
+            clear();
+            lastTime = Time.time();
+        }
+
+        int cx = (int)Math.floor(x / cellSize), cy = (int)Math.floor(y / cellSize);
+        int bucket = Math.max((int)Math.ceil(range / rangeStep), 0);
+
+        //absurdly large ranges are not worth caching; each of them still gets its own list, as callers may nest queries
+        if(bucket > 0xffff){
+            misses ++;
+            Seq<Unit> result = obtain();
+            Units.nearby(team, x - range, y - range, range * 2f, range * 2f, result::add);
+            return result;
+        }
+
+        long key = ((long)team.id << 48) | ((long)bucket << 32) | ((long)(cx & 0xffff) << 16) | (cy & 0xffff);
+        Seq<Unit> result = entries.get(key);
+
+        if(result != null){
+            hits ++;
+            return result;
+        }
+
+        misses ++;
+        result = obtain();
+        entries.put(key, result);
+
+        //the queried square contains any circle of this range centered within the cell
+        float r = bucket * rangeStep;
+        Units.nearby(team, cx * cellSize - r, cy * cellSize - r, cellSize + r * 2f, cellSize + r * 2f, result::add);
+
+        return result;
+    }
+
+    /** @return an empty list that is recycled once the cache is cleared. */
+    private Seq<Unit> obtain(){
+        Seq<Unit> result = free.isEmpty() ? new Seq<>() : free.pop();
+        used.add(result);
+        return result;
+    }
+
+    /** @return the fraction of queries answered from the cache. */
+    public float hitRate(){
+        long total = hits + misses;
+        return total == 0 ? 0f : hits / (float)total;
+    }
+
+    public void resetStats(){
+        hits = misses = 0;
+    }
+
+    /** Removes all cached queries. Happens automatically every update. */
+    public void clear(){
+        entries.clear();
+        for(Seq<Unit> seq : used){
+            seq.clear();
+        }
+        free.addAll(used);
+        used.clear();
+    }
+}
@@ -3,6 +3,7 @@ package mindustry.entities;
 import arc.*;
 import arc.func.*;
 import arc.math.geom.*;
+import arc.struct.*;
 import mindustry.annotations.Annotations.*;
 import mindustry.content.*;
 import mindustry.game.*;
@@ -14,6 +15,9 @@ import static mindustry.Vars.*;
 
 /** Utility class for unit and team interactions.*/
 public class Units{
+    /** Shared cache for target searches during the current update. */
+    public static final UnitQueryCache queryCache = new UnitQueryCache();
+
     private static final Rect hitrect = new Rect();
     private static Unit result;
     private static float cdist;
@@ -214,17 +218,35 @@ public class Units{
         result = null;
         cdist = 0f;
 
-        nearbyEnemies(team, x - range, y - range, range*2f, range*2f, e -> {
-            if(e.dead() || !predicate.get(e) || !e.within(x, y, range)) return;
+        if(team.active()){
+            for(Team enemy : state.teams.enemiesOf(team)){
+                bestEnemy(enemy, x, y, range, predicate, sort);
+            }
+        }else{
+            //inactive teams have no cache, check everything
+            for(Team other : Team.all){
+                if(other != team && other.data().unitCount > 0){
+                    bestEnemy(other, x, y, range, predicate, sort);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static void bestEnemy(Team enemy, float x, float y, float range, Boolf<Unit> predicate, Sortf sort){
+        Seq<Unit> units = queryCache.units(enemy, x, y, range);
+
+        for(int i = 0; i < units.size; i++){
+            Unit e = units.get(i);
+            if(e.dead() || !e.isAdded() || !predicate.get(e) || !e.within(x, y, range)) continue;
 
             float cost = sort.cost(e, x, y);
             if(result == null || cost < cdist){
                 result = e;
                 cdist = cost;
             }
-        });
-
-        return result;
+        }
     }
 
     /** Returns the closest ally of this team. Filter by predicate. No range. */
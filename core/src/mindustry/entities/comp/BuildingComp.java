@@ -331,7 +331,10 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
     public void noSleep(){
         sleepTime = 0f;
         if(sleeping){
-            add();
+            //buildings that were removed from the world while asleep must not rejoin the update loop
+            if(tile.build == self()){
+                add();
+            }
             sleeping = false;
             sleepingEntities--;
         }
@@ -92,7 +92,7 @@ public class Saves{
                 saving = true;
 
                 try{
-                    current.save();
+                    current.saveAsync();
                 }catch(Throwable e){
                     e.printStackTrace();
                 }
@@ -209,6 +209,17 @@ public class Saves{
             savePreview();
         }
 
+        /** Saves without waiting for the file to be compressed and written. Metadata is updated once it has been. */
+        public void saveAsync(){
+            SaveIO.saveAsync(file, () -> meta = SaveIO.getMeta(file));
+
+            if(state.isGame()){
+                current = this;
+            }
+
+            savePreview();
+        }
+
         private void savePreview(){
             if(Core.assets.isLoaded(loadPreviewFile().path())){
                 Core.assets.unload(loadPreviewFile().path());
@@ -319,6 +330,7 @@ public class Saves{
         }
 
         public void importFile(Fi from) throws IOException{
+            SaveIO.awaitSaves();
             try{
                 from.copyTo(file);
             }catch(Exception e){
@@ -327,6 +339,7 @@ public class Saves{
         }
 
         public void exportFile(Fi to) throws IOException{
+            SaveIO.awaitSaves();
             try{
                 file.copyTo(to);
             }catch(Exception e){
@@ -335,6 +348,7 @@ public class Saves{
         }
 
         public void delete(){
+            SaveIO.awaitSaves();
             file.delete();
             saves.remove(this, true);
             if(this == current){
@@ -36,6 +36,12 @@ public class MapIO{
     }
 
     public static Map createMap(Fi file, boolean custom) throws IOException{
+        if(SaveRegions.isRegionFile(file)){
+            SaveRegions regions = SaveRegions.open(file);
+            StringMap tags = SaveIO.getSaveWriter(regions.version).readStringMap(regions.stream("meta"));
+            return new Map(file, tags.getInt("width"), tags.getInt("height"), tags, custom, regions.version, Version.build);
+        }
+
         try(InputStream is = new InflaterInputStream(file.read(bufferSize)); CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
             SaveIO.readHeader(stream);
             int version = stream.readInt();
@@ -66,74 +72,90 @@ public class MapIO{
         map.spawns = 0;
         map.teams.clear();
 
-        try(InputStream is = new InflaterInputStream(map.file.read(bufferSize)); CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
-            SaveIO.readHeader(stream);
-            int version = stream.readInt();
-            SaveVersion ver = SaveIO.getSaveWriter(version);
-            ver.region("meta", stream, counter, ver::readStringMap);
-
-            Pixmap floors = new Pixmap(map.width, map.height);
-            Pixmap walls = new Pixmap(map.width, map.height);
-            int black = 255;
-            int shade = Color.rgba8888(0f, 0f, 0f, 0.5f);
-            CachedTile tile = new CachedTile(){
-                @Override
-                public void setBlock(Block type){
-                    super.setBlock(type);
-                    int c = colorFor(Blocks.air, block(), Blocks.air, team());
-                    if(c != black){
-                        walls.draw(x, floors.getHeight() - 1 - y, c);
-                        floors.draw(x, floors.getHeight() - 1 - y + 1, shade);
-                    }
-                }
+        try{
+            if(SaveRegions.isRegionFile(map.file)){
+                SaveRegions regions = SaveRegions.open(map.file);
+                SaveVersion ver = SaveIO.getSaveWriter(regions.version);
+                ver.readContentHeader(regions.stream("content"));
+                return readPreview(map, ver, regions.stream("map"));
+            }
 
-                @Override
-                public void setTeam(Team team){
-                    super.setTeam(team);
-                    if(block instanceof CoreBlock){
-                        map.teams.add(team.id);
-                    }
-                }
-            };
-
-            ver.region("content", stream, counter, ver::readContentHeader);
-            ver.region("preview_map", stream, counter, in -> ver.readMap(in, new WorldContext(){
-                @Override public void resize(int width, int height){}
-                @Override public boolean isGenerating(){return false;}
-                @Override public void begin(){
-                    world.setGenerating(true);
-                }
-                @Override public void end(){
-                    world.setGenerating(false);
+            try(InputStream is = new InflaterInputStream(map.file.read(bufferSize)); CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
+                SaveIO.readHeader(stream);
+                int version = stream.readInt();
+                SaveVersion ver = SaveIO.getSaveWriter(version);
+                ver.region("meta", stream, counter, ver::readStringMap);
+                ver.region("content", stream, counter, ver::readContentHeader);
+
+                Pixmap[] preview = {null};
+                ver.region("preview_map", stream, counter, in -> preview[0] = readPreview(map, ver, in));
+                return preview[0];
+            }
+        }finally{
+            content.setTemporaryMapper(null);
+        }
+    }
+
+    /** Draws the map data of a save into a preview pixmap. The content header must already have been read. */
+    private static Pixmap readPreview(Map map, SaveVersion ver, DataInput stream) throws IOException{
+        Pixmap floors = new Pixmap(map.width, map.height);
+        Pixmap walls = new Pixmap(map.width, map.height);
+        int black = 255;
+        int shade = Color.rgba8888(0f, 0f, 0f, 0.5f);
+        CachedTile tile = new CachedTile(){
+            @Override
+            public void setBlock(Block type){
+                super.setBlock(type);
+                int c = colorFor(Blocks.air, block(), Blocks.air, team());
+                if(c != black){
+                    walls.draw(x, floors.getHeight() - 1 - y, c);
+                    floors.draw(x, floors.getHeight() - 1 - y + 1, shade);
                 }
+            }
 
-                @Override
-                public Tile tile(int index){
-                    tile.x = (short)(index % map.width);
-                    tile.y = (short)(index / map.width);
-                    return tile;
+            @Override
+            public void setTeam(Team team){
+                super.setTeam(team);
+                if(block instanceof CoreBlock){
+                    map.teams.add(team.id);
                 }
+            }
+        };
 
-                @Override
-                public Tile create(int x, int y, int floorID, int overlayID, int wallID){
-                    if(overlayID != 0){
-                        floors.draw(x, floors.getHeight() - 1 - y, colorFor(Blocks.air, Blocks.air, content.block(overlayID), Team.derelict));
-                    }else{
-                        floors.draw(x, floors.getHeight() - 1 - y, colorFor(content.block(floorID), Blocks.air, Blocks.air, Team.derelict));
-                    }
-                    if(content.block(overlayID) == Blocks.spawn){
-                        map.spawns ++;
-                    }
-                    return tile;
+        ver.readMap(stream, new WorldContext(){
+            @Override public void resize(int width, int height){}
+            @Override public boolean isGenerating(){return false;}
+            @Override public void begin(){
+                world.setGenerating(true);
+            }
+            @Override public void end(){
+                world.setGenerating(false);
+            }
+
+            @Override
+            public Tile tile(int index){
+                tile.x = (short)(index % map.width);
+                tile.y = (short)(index / map.width);
+                return tile;
+            }
+
+            @Override
+            public Tile create(int x, int y, int floorID, int overlayID, int wallID){
+                if(overlayID != 0){
+                    floors.draw(x, floors.getHeight() - 1 - y, colorFor(Blocks.air, Blocks.air, content.block(overlayID), Team.derelict));
+                }else{
+                    floors.draw(x, floors.getHeight() - 1 - y, colorFor(content.block(floorID), Blocks.air, Blocks.air, Team.derelict));
+                }
+                if(content.block(overlayID) == Blocks.spawn){
+                    map.spawns ++;
                 }
-            }));
+                return tile;
+            }
+        });
 
-            floors.drawPixmap(walls, 0, 0);
-            walls.dispose();
-            return floors;
-        }finally{
-            content.setTemporaryMapper(null);
-        }
+        floors.drawPixmap(walls, 0, 0);
+        walls.dispose();
+        return floors;
     }
 
     public static Pixmap generatePreview(Tiles tiles){
@@ -13,6 +13,7 @@ import mindustry.world.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 import static mindustry.Vars.*;
@@ -22,11 +23,22 @@ public class SaveIO{
     public static final byte[] header = {77, 83, 65, 86};
     public static final IntMap<SaveVersion> versions = new IntMap<>();
     public static final Seq<SaveVersion> versionArray = Seq.with(new Save1(), new Save2(), new Save3(), new Save4());
+    /** Version of save files written by {@link #save(Fi)}. Streamed saves and maps are still written with the latest entry of {@link #versionArray}. */
+    public static final Save5 regionVersion = new Save5();
+
+    /** Compresses and writes asynchronous saves, one at a time. */
+    private static final ExecutorService saveExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Save Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static @Nullable Future<?> lastSave;
 
     static{
         for(SaveVersion version : versionArray){
             versions.put(version.version, version);
         }
+        versions.put(regionVersion.version, regionVersion);
     }
 
     public static SaveVersion getSaveWriter(){
@@ -38,10 +50,68 @@ public class SaveIO{
     }
 
     public static void save(Fi file){
+        awaitSaves();
+        try{
+            byte[][] regions = regionVersion.writeRegions(new StringMap());
+            replace(file, () -> writeRegions(file, regions));
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Saves without waiting for compression or disk access.
+     * The game state is serialized into memory on the calling thread, so the save is a consistent snapshot.
+     * Compressing it and replacing the file, with the same backup handling as {@link #save(Fi)}, happens on a background thread.
+     * @param done run on the main thread once the file has been written; may be null.
+     */
+    public static Future<?> saveAsync(Fi file, @Nullable Runnable done){
+        byte[][] regions;
+        try{
+            regions = regionVersion.writeRegions(new StringMap());
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+
+        return lastSave = saveExecutor.submit(() -> {
+            try{
+                replace(file, () -> writeRegions(file, regions));
+            }catch(Throwable e){
+                Log.err("Failed to save to @", file);
+                Log.err(e);
+                throw e;
+            }
+
+            if(done != null) Core.app.post(done);
+        });
+    }
+
+    /** Blocks until all asynchronous saves have been written. */
+    public static void awaitSaves(){
+        Future<?> last = lastSave;
+        if(last == null) return;
+
+        try{
+            last.get();
+        }catch(Throwable ignored){
+            //already logged by the save itself
+        }
+    }
+
+    private static void writeRegions(Fi file, byte[][] regions){
+        try{
+            SaveRegions.write(file, regionVersion.version, Save5.regions, regions);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Writes a file, keeping the previous version as a backup that is restored if writing fails. */
+    private static void replace(Fi file, Runnable writer){
         boolean exists = file.exists();
         if(exists) file.moveTo(backupFileFor(file));
         try{
-            write(file);
+            writer.run();
         }catch(Throwable e){
             if(exists) backupFileFor(file).moveTo(file);
             throw new RuntimeException(e);
@@ -57,6 +127,17 @@ public class SaveIO{
     }
 
     public static boolean isSaveValid(Fi file){
+        awaitSaves();
+
+        if(SaveRegions.isRegionFile(file)){
+            try{
+                getRegionMeta(file);
+                return true;
+            }catch(Throwable e){
+                return false;
+            }
+        }
+
         try(DataInputStream stream = new DataInputStream(new InflaterInputStream(file.read(bufferSize)))){
             return isSaveValid(stream);
         }catch(Throwable e){
@@ -75,14 +156,29 @@ public class SaveIO{
     }
 
     public static SaveMeta getMeta(Fi file){
+        awaitSaves();
+
         try{
-            return getMeta(getStream(file));
+            return SaveRegions.isRegionFile(file) ? getRegionMeta(file) : getMeta(getStream(file));
         }catch(Throwable e){
             Log.err(e);
-            return getMeta(getBackupStream(file));
+            Fi backup = backupFileFor(file);
+            try{
+                return SaveRegions.isRegionFile(backup) ? getRegionMeta(backup) : getMeta(getBackupStream(file));
+            }catch(IOException other){
+                throw new RuntimeException(other);
+            }
         }
     }
 
+    /** Reads metadata from a region save file. Only the meta region is inflated. */
+    private static SaveMeta getRegionMeta(Fi file) throws IOException{
+        SaveRegions regions = SaveRegions.open(file);
+        SaveVersion version = versions.get(regions.version);
+        if(!(version instanceof Save5)) throw new IOException("Unknown region save version: " + regions.version);
+        return ((Save5)version).getMeta(regions);
+    }
+
     public static SaveMeta getMeta(DataInputStream stream){
 
         try{
@@ -135,20 +231,45 @@ public class SaveIO{
     }
 
     public static void load(Fi file, WorldContext context) throws SaveException{
+        awaitSaves();
+
         try{
             //try and load; if any exception at all occurs
-            load(new InflaterInputStream(file.read(bufferSize)), context);
+            loadAny(file, context);
         }catch(SaveException e){
             Log.err(e);
             Fi backup = file.sibling(file.name() + "-backup." + file.extension());
             if(backup.exists()){
-                load(new InflaterInputStream(backup.read(bufferSize)), context);
+                loadAny(backup, context);
             }else{
                 throw new SaveException(e.getCause());
             }
         }
     }
 
+    /** Loads either a region save file or a regular deflated one. */
+    private static void loadAny(Fi file, WorldContext context) throws SaveException{
+        if(!SaveRegions.isRegionFile(file)){
+            load(new InflaterInputStream(file.read(bufferSize)), context);
+            return;
+        }
+
+        try{
+            SaveRegions regions = SaveRegions.open(file);
+            SaveVersion version = versions.get(regions.version);
+            if(!(version instanceof Save5)) throw new IOException("Unknown region save version: " + regions.version);
+
+            logic.reset();
+            ((Save5)version).readRegions(regions, context);
+            Events.fire(new SaveLoadEvent());
+        }catch(Throwable e){
+            throw new SaveException(e);
+        }finally{
+            world.setGenerating(false);
+            content.setTemporaryMapper(null);
+        }
+    }
+
     /** Loads from a deflated (!) input stream. */
     public static void load(InputStream is, WorldContext context) throws SaveException{
         try(CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
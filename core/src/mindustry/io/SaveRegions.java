@@ -0,0 +1,186 @@
+package mindustry.io;
+
+import arc.files.*;
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/**
+ * A save file made of independently compressed regions, with an index of all regions at the start.
+ * Any region can be read without inflating the others, so reading metadata only touches the start of the file, and
+ * regions can be inflated in parallel.
+ * <p>
+ * Layout: the uncompressed {@link SaveIO#header}, the save version, the amount of regions, and for each region its name,
+ * offset from the end of the index, compressed length and uncompressed length. The zlib-compressed regions follow.
+ * Regular saves are deflated as a whole, so they never start with the uncompressed header.
+ */
+public class SaveRegions{
+    public final Fi file;
+    public final int version;
+    public final String[] names;
+    public final long[] offsets;
+    public final int[] lengths, sizes;
+
+    private final long dataStart;
+
+    private SaveRegions(Fi file) throws IOException{
+        this.file = file;
+
+        try(CounterInputStream counter = new CounterInputStream(file.read(Vars.bufferSize)); DataInputStream stream = new DataInputStream(counter)){
+            SaveIO.readHeader(stream);
+
+            version = stream.readInt();
+            int count = stream.readInt();
+            names = new String[count];
+            offsets = new long[count];
+            lengths = new int[count];
+            sizes = new int[count];
+
+            for(int i = 0; i < count; i++){
+                byte[] name = new byte[stream.readUnsignedShort()];
+                stream.readFully(name);
+                names[i] = new String(name, Strings.utf8);
+                offsets[i] = stream.readLong();
+                lengths[i] = stream.readInt();
+                sizes[i] = stream.readInt();
+            }
+
+            dataStart = counter.count();
+        }
+    }
+
+    /** @return whether this file is a region save, as opposed to a regular deflated one. */
+    public static boolean isRegionFile(Fi file){
+        try(InputStream stream = file.read()){
+            for(byte b : SaveIO.header){
+                if(stream.read() != b) return false;
+            }
+            return true;
+        }catch(Throwable e){
+            return false;
+        }
+    }
+
+    /** Reads the index of a region save file. Region data is only read when requested. */
+    public static SaveRegions open(Fi file) throws IOException{
+        return new SaveRegions(file);
+    }
+
+    /** Compresses regions and writes them to a file, along with their index. Safe to call from any thread. */
+    public static void write(Fi file, int version, String[] names, byte[][] regions) throws IOException{
+        byte[][] compressed = new byte[regions.length][];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] buffer = new byte[8192];
+
+        try{
+            for(int i = 0; i < regions.length; i++){
+                ByteArrayOutputStream out = new ByteArrayOutputStream(regions[i].length / 4 + 16);
+                deflater.reset();
+                deflater.setInput(regions[i]);
+                deflater.finish();
+                while(!deflater.finished()){
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+                compressed[i] = out.toByteArray();
+            }
+        }finally{
+            deflater.end();
+        }
+
+        try(DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(file.write(false), 8192))){
+            stream.write(SaveIO.header);
+            stream.writeInt(version);
+            stream.writeInt(regions.length);
+
+            long offset = 0;
+            for(int i = 0; i < regions.length; i++){
+                byte[] name = names[i].getBytes(Strings.utf8);
+                stream.writeShort(name.length);
+                stream.write(name);
+                stream.writeLong(offset);
+                stream.writeInt(compressed[i].length);
+                stream.writeInt(regions[i].length);
+                offset += compressed[i].length;
+            }
+
+            for(byte[] region : compressed){
+                stream.write(region);
+            }
+        }
+    }
+
+    /** @return whether this file contains a region with this name. */
+    public boolean has(String name){
+        return index(name) != -1;
+    }
+
+    /** Reads and inflates a single region. Safe to call from multiple threads at once. */
+    public byte[] read(String name) throws IOException{
+        int index = index(name);
+        if(index == -1) throw new IOException("Missing region \"" + name + "\".");
+
+        byte[] compressed = new byte[lengths[index]];
+        long position = dataStart + offsets[index];
+        File real = file.file();
+
+        if(real.isFile()){
+            //positional reads don't keep the file mapped or open, so it can be replaced by the next save right away
+            try(FileChannel channel = FileChannel.open(real.toPath(), StandardOpenOption.READ)){
+                ByteBuffer buffer = ByteBuffer.wrap(compressed);
+                while(buffer.hasRemaining()){
+                    if(channel.read(buffer, position + buffer.position()) < 0){
+                        throw new IOException("Region \"" + name + "\" is truncated.");
+                    }
+                }
+            }
+        }else{
+            //files inside the jar can only be streamed
+            try(DataInputStream stream = new DataInputStream(file.read())){
+                long skip = position;
+                while(skip > 0){
+                    long skipped = stream.skip(skip);
+                    if(skipped <= 0) throw new IOException("Region \"" + name + "\" is truncated.");
+                    skip -= skipped;
+                }
+                stream.readFully(compressed);
+            }
+        }
+
+        byte[] result = new byte[sizes[index]];
+        Inflater inflater = new Inflater();
+        try{
+            inflater.setInput(compressed);
+            int read = 0;
+            while(read < result.length && !inflater.finished()){
+                int amount = inflater.inflate(result, read, result.length - read);
+                if(amount == 0 && (inflater.needsInput() || inflater.needsDictionary())){
+                    throw new IOException("Region \"" + name + "\" is truncated.");
+                }
+                read += amount;
+            }
+        }catch(DataFormatException e){
+            throw new IOException("Region \"" + name + "\" is corrupt.", e);
+        }finally{
+            inflater.end();
+        }
+        return result;
+    }
+
+    /** @return a stream over a single inflated region. */
+    public DataInputStream stream(String name) throws IOException{
+        return new DataInputStream(new ByteArrayInputStream(read(name)));
+    }
+
+    private int index(String name){
+        for(int i = 0; i < names.length; i++){
+            if(names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,67 @@
+package mindustry.io.versions;
+
+import arc.struct.*;
+import mindustry.io.*;
+import mindustry.world.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/** Version of {@link SaveRegions} save files. Its streamed form is identical to version 4. */
+public class Save5 extends SaveVersion{
+    /** Names of the regions in a region save file, in the order they are read. */
+    public static final String[] regions = {"meta", "content", "map", "entities"};
+
+    public Save5(){
+        super(5);
+    }
+
+    /** Serializes each region separately, without compressing it. Must be called on the main thread. */
+    public byte[][] writeRegions(StringMap tags) throws IOException{
+        return new byte[][]{
+            serialize(out -> writeMeta(out, tags)),
+            serialize(this::writeContentHeader),
+            serialize(this::writeMap),
+            serialize(this::writeEntities)
+        };
+    }
+
+    /** Reads a region save file. The map and entity regions are inflated in parallel, while the others are read. */
+    public void readRegions(SaveRegions file, WorldContext context) throws IOException{
+        Future<byte[]> map = ForkJoinPool.commonPool().submit(() -> file.read("map"));
+        Future<byte[]> entities = ForkJoinPool.commonPool().submit(() -> file.read("entities"));
+
+        readMeta(file.stream("meta"));
+        readContentHeader(file.stream("content"));
+
+        try{
+            readMap(new DataInputStream(new ByteArrayInputStream(get(map))), context);
+            readEntities(new DataInputStream(new ByteArrayInputStream(get(entities))));
+        }finally{
+            content.setTemporaryMapper(null);
+        }
+    }
+
+    /** Reads metadata without inflating anything but the meta region. */
+    public SaveMeta getMeta(SaveRegions file) throws IOException{
+        return getMeta(readStringMap(file.stream("meta")));
+    }
+
+    private byte[] serialize(IORunner<DataOutput> writer) throws IOException{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer.accept(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static byte[] get(Future<byte[]> future) throws IOException{
+        try{
+            return future.get();
+        }catch(ExecutionException e){
+            throw new IOException(e.getCause());
+        }catch(InterruptedException e){
+            throw new IOException(e);
+        }
+    }
+}
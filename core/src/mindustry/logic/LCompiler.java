@@ -0,0 +1,145 @@
+package mindustry.logic;
+
+import arc.util.*;
+import mindustry.logic.LAssembler.*;
+import mindustry.logic.LExecutor.*;
+
+import static mindustry.logic.LExecutor.*;
+
+/**
+ * Compiles assembled instructions into specialized instructions.
+ * Numeric operations are bound directly to their arithmetic, numeric constants are folded into the instruction
+ * and jump conditions are resolved ahead of time. Instructions that cannot be specialized are kept as-is, so they are
+ * run by the regular interpreter. Instruction indices are preserved, so jumps and @counter behave identically.
+ */
+public class LCompiler{
+
+    /** @return a copy of the assembler's instructions, with every supported instruction replaced by a specialized one. */
+    public static LInstruction[] compile(LAssembler asm){
+        BVar[] vars = new BVar[asm.vars.size];
+        asm.vars.each((name, var) -> vars[var.id] = var);
+
+        LInstruction[] result = new LInstruction[asm.instructions.length];
+        for(int i = 0; i < result.length; i++){
+            LInstruction compiled = compile(asm.instructions[i], vars);
+            result[i] = compiled == null ? asm.instructions[i] : compiled;
+        }
+        return result;
+    }
+
+    /** @return the specialized instruction, or null if this instruction is not supported. */
+    static @Nullable LInstruction compile(LInstruction inst, BVar[] vars){
+        if(inst instanceof OpI){
+            return op((OpI)inst, vars);
+        }else if(inst instanceof JumpI){
+            return jump((JumpI)inst, vars);
+        }else if(inst instanceof SetI){
+            return set((SetI)inst, vars);
+        }
+        return null;
+    }
+
+    static @Nullable LInstruction op(OpI inst, BVar[] vars){
+        int a = inst.a, b = inst.b, dest = inst.dest;
+
+        //writes to constants are no-ops
+        if(vars[dest].constant) return exec -> {};
+
+        if(inst.op.unary){
+            LogicOp.OpLambda1 f = inst.op.function1;
+            return exec -> exec.setnum(dest, f.get(exec.num(a)));
+        }
+
+        //object operands need the interpreter's type checks
+        if(inst.op.objFunction2 != null) return null;
+
+        boolean ca = folds(vars[a]), cb = folds(vars[b]);
+        double va = ca ? num(vars[a]) : 0, vb = cb ? num(vars[b]) : 0;
+
+        switch(inst.op){
+            case add:
+                if(cb) return exec -> exec.setnum(dest, exec.num(a) + vb);
+                if(ca) return exec -> exec.setnum(dest, va + exec.num(b));
+                return exec -> exec.setnum(dest, exec.num(a) + exec.num(b));
+            case sub:
+                if(cb) return exec -> exec.setnum(dest, exec.num(a) - vb);
+                if(ca) return exec -> exec.setnum(dest, va - exec.num(b));
+                return exec -> exec.setnum(dest, exec.num(a) - exec.num(b));
+            case mul:
+                if(cb) return exec -> exec.setnum(dest, exec.num(a) * vb);
+                if(ca) return exec -> exec.setnum(dest, va * exec.num(b));
+                return exec -> exec.setnum(dest, exec.num(a) * exec.num(b));
+            case div:
+                if(cb) return exec -> exec.setnum(dest, exec.num(a) / vb);
+                return exec -> exec.setnum(dest, exec.num(a) / exec.num(b));
+            case mod:
+                if(cb) return exec -> exec.setnum(dest, exec.num(a) % vb);
+                return exec -> exec.setnum(dest, exec.num(a) % exec.num(b));
+            case lessThan:
+                return exec -> exec.setnum(dest, exec.num(a) < exec.num(b) ? 1 : 0);
+            case lessThanEq:
+                return exec -> exec.setnum(dest, exec.num(a) <= exec.num(b) ? 1 : 0);
+            case greaterThan:
+                return exec -> exec.setnum(dest, exec.num(a) > exec.num(b) ? 1 : 0);
+            case greaterThanEq:
+                return exec -> exec.setnum(dest, exec.num(a) >= exec.num(b) ? 1 : 0);
+            default:
+                LogicOp.OpLambda2 f = inst.op.function2;
+                return exec -> exec.setnum(dest, f.get(exec.num(a), exec.num(b)));
+        }
+    }
+
+    static @Nullable LInstruction jump(JumpI inst, BVar[] vars){
+        int a = inst.value, b = inst.compare, address = inst.address;
+
+        if(address == -1) return exec -> {};
+
+        if(inst.op == ConditionOp.always){
+            return exec -> exec.jump(address);
+        }
+
+        //object operands need the interpreter's type checks
+        if(inst.op.objFunction != null) return null;
+
+        boolean cb = folds(vars[b]);
+        double vb = cb ? num(vars[b]) : 0;
+
+        switch(inst.op){
+            case lessThan:
+                if(cb) return exec -> { if(exec.num(a) < vb) exec.jump(address); };
+                return exec -> { if(exec.num(a) < exec.num(b)) exec.jump(address); };
+            case lessThanEq:
+                if(cb) return exec -> { if(exec.num(a) <= vb) exec.jump(address); };
+                return exec -> { if(exec.num(a) <= exec.num(b)) exec.jump(address); };
+            case greaterThan:
+                if(cb) return exec -> { if(exec.num(a) > vb) exec.jump(address); };
+                return exec -> { if(exec.num(a) > exec.num(b)) exec.jump(address); };
+            case greaterThanEq:
+                if(cb) return exec -> { if(exec.num(a) >= vb) exec.jump(address); };
+                return exec -> { if(exec.num(a) >= exec.num(b)) exec.jump(address); };
+            default:
+                return null;
+        }
+    }
+
+    static @Nullable LInstruction set(SetI inst, BVar[] vars){
+        int to = inst.to;
+
+        if(vars[to].constant) return exec -> {};
+
+        if(folds(vars[inst.from])){
+            double value = num(vars[inst.from]);
+            return exec -> exec.setnum(to, value);
+        }
+        return null;
+    }
+
+    /** @return whether this variable is a numeric constant that can never change at runtime. */
+    static boolean folds(BVar var){
+        return var.constant && var.value instanceof Number && var.id != varTime && var.id != varUnit && var.id != varCounter;
+    }
+
+    static double num(BVar var){
+        return ((Number)var.value).doubleValue();
+    }
+}
@@ -36,81 +36,143 @@ public class LExecutor{
         maxTextBuffer = 256;
 
     public LInstruction[] instructions = {};
-    public Var[] vars = {};
+    /** Whether each instruction only touches this executor's own state, and can therefore run off the main thread. */
+    public boolean[] local = {};
+
+    /** Variable storage, indexed by the variable ID assigned by {@link LAssembler}. */
+    public String[] names = {};
+    /** Numeric values of variables. Only valid when the variable is not an object. */
+    public double[] numvals = {};
+    /** Object values of variables. Only valid when the variable is an object. */
+    public Object[] objvals = {};
+    /** Which variables currently hold objects. */
+    public Bits objects = new Bits();
+    /** Which variables are constant. */
+    public Bits constants = new Bits();
 
     public LongSeq graphicsBuffer = new LongSeq();
     public StringBuilder textBuffer = new StringBuilder();
     public Building[] links = {};
     public Team team = Team.derelict;
+    /** Whether loaded programs are specialized by {@link LCompiler}. */
+    public boolean compile = true;
 
     public boolean initialized(){
-        return instructions != null && vars != null && instructions.length > 0;
+        return instructions != null && names != null && instructions.length > 0;
     }
 
     /** Runs a single instruction. */
     public void runOnce(){
+        double[] numvals = this.numvals;
+
         //set time
-        vars[varTime].numval = Time.millis();
+        numvals[varTime] = Time.millis();
 
         //reset to start
-        if(vars[varCounter].numval >= instructions.length
-            || vars[varCounter].numval < 0) vars[varCounter].numval = 0;
+        if(numvals[varCounter] >= instructions.length
+            || numvals[varCounter] < 0) numvals[varCounter] = 0;
 
-        if(vars[varCounter].numval < instructions.length){
-            instructions[(int)(vars[varCounter].numval++)].run(this);
+        if(numvals[varCounter] < instructions.length){
+            instructions[(int)(numvals[varCounter]++)].run(this);
         }
     }
 
+    /**
+     * Runs instructions until the budget is used up or the next instruction is not local.
+     * @return the amount of instructions that were run.
+     */
+    public int runLocal(int budget){
+        int ran = 0;
+        while(ran < budget && instructions.length > 0){
+            int counter = (int)numvals[varCounter];
+            if(counter >= instructions.length || counter < 0) counter = 0;
+            if(!local[counter]) break;
+
+            runOnce();
+            ran ++;
+        }
+        return ran;
+    }
+
     public void load(String data, int maxInstructions){
         load(LAssembler.assemble(data, maxInstructions));
     }
 
     /** Loads with a specified assembler. Resets all variables. */
     public void load(LAssembler builder){
-        vars = new Var[builder.vars.size];
-        instructions = builder.instructions;
+        int size = builder.vars.size;
+        names = new String[size];
+        numvals = new double[size];
+        objvals = new Object[size];
+        objects = new Bits(size);
+        constants = new Bits(size);
+        instructions = compile ? LCompiler.compile(builder) : builder.instructions;
+        local = new boolean[instructions.length];
+        for(int i = 0; i < local.length; i++){
+            local[i] = isLocal(builder.instructions[i]);
+        }
 
         builder.vars.each((name, var) -> {
-            Var dest = new Var(name);
-            vars[var.id] = dest;
+            names[var.id] = name;
 
-            dest.constant = var.constant;
+            if(var.constant) constants.set(var.id);
 
             if(var.value instanceof Number){
-                dest.isobj = false;
-                dest.numval = ((Number)var.value).doubleValue();
+                numvals[var.id] = ((Number)var.value).doubleValue();
             }else{
-                dest.isobj = true;
-                dest.objval = var.value;
+                objects.set(var.id);
+                objvals[var.id] = var.value;
             }
         });
     }
 
+    /** @return whether this instruction only reads and writes the executor it is run on. */
+    public static boolean isLocal(LInstruction inst){
+        return
+            inst instanceof SetI || inst instanceof JumpI || inst instanceof EndI || inst instanceof NoopI ||
+            inst instanceof PrintI || inst instanceof DrawI || inst instanceof GetLinkI ||
+            //rand uses a shared generator, so results would depend on thread order
+            (inst instanceof OpI && ((OpI)inst).op != LogicOp.rand);
+    }
+
     //region utility
 
+    public int varCount(){
+        return names.length;
+    }
+
+    public boolean isobj(int index){
+        return objects.get(index);
+    }
+
+    public boolean isconst(int index){
+        return constants.get(index);
+    }
+
+    /** @return the raw value of a variable, either its object or a boxed number. */
+    public Object value(int index){
+        return objects.get(index) ? objvals[index] : (Object)numvals[index];
+    }
+
     public @Nullable Building building(int index){
-        Object o = vars[index].objval;
-        return vars[index].isobj && o instanceof Building ? (Building)o : null;
+        Object o = objvals[index];
+        return objects.get(index) && o instanceof Building ? (Building)o : null;
     }
 
     public @Nullable Object obj(int index){
-        Object o = vars[index].objval;
-        return vars[index].isobj ? o : null;
+        return objects.get(index) ? objvals[index] : null;
     }
 
     public boolean bool(int index){
-        Var v = vars[index];
-        return v.isobj ? v.objval != null : Math.abs(v.numval) >= 0.00001;
+        return objects.get(index) ? objvals[index] != null : Math.abs(numvals[index]) >= 0.00001;
     }
 
     public double num(int index){
-        Var v = vars[index];
-        return v.isobj ? v.objval != null ? 1 : 0 : v.numval;
+        return objects.get(index) ? objvals[index] != null ? 1 : 0 : numvals[index];
     }
 
     public float numf(int index){
-        Var v = vars[index];
-        return v.isobj ? v.objval != null ? 1 : 0 : (float)v.numval;
+        return objects.get(index) ? objvals[index] != null ? 1 : 0 : (float)numvals[index];
     }
 
     public int numi(int index){
@@ -118,41 +180,30 @@ public class LExecutor{
     }
 
     public void setnum(int index, double value){
-        Var v = vars[index];
-        if(v.constant) return;
-        v.numval = value;
-        v.objval = null;
-        v.isobj = false;
+        if(constants.get(index)) return;
+        numvals[index] = value;
+        objvals[index] = null;
+        objects.clear(index);
     }
 
     public void setobj(int index, Object value){
-        Var v = vars[index];
-        if(v.constant) return;
-        v.objval = value;
-        v.isobj = true;
+        if(constants.get(index)) return;
+        objvals[index] = value;
+        objects.set(index);
     }
 
     public void setconst(int index, Object value){
-        Var v = vars[index];
-        v.objval = value;
-        v.isobj = true;
+        objvals[index] = value;
+        objects.set(index);
     }
 
-    //endregion
-
-    public static class Var{
-        public final String name;
-
-        public boolean isobj, constant;
-
-        public Object objval;
-        public double numval;
-
-        public Var(String name){
-            this.name = name;
-        }
+    /** Sets the instruction counter, which is used for jumps. */
+    public void jump(int address){
+        numvals[varCounter] = address;
     }
 
+    //endregion
+
     //region instruction types
 
     public interface LInstruction{
@@ -461,8 +512,9 @@ public class LExecutor{
         public Healthc lastTarget;
         public Interval timer = new Interval();
 
-        static float bestValue = 0f;
-        static Unit best = null;
+        //per-instruction search state; radar instructions always run on the main thread
+        float bestValue = 0f;
+        Unit best = null;
 
         public RadarI(RadarTarget target1, RadarTarget target2, RadarTarget target3, RadarSort sort, int radar, int sortOrder, int output){
             this.target1 = target1;
@@ -519,22 +571,26 @@ public class LExecutor{
         }
 
         void find(Ranged b, float range, int sortDir, Team team){
-            Units.nearby(team, b.x(), b.y(), range, u -> {
-                if(!u.within(b, range)) return;
+            //candidates are shared with every other radar and turret searching this area
+            Seq<Unit> units = Units.queryCache.units(team, b.x(), b.y(), range);
+
+            for(int i = 0; i < units.size; i++){
+                Unit u = units.get(i);
+                if(!u.isAdded() || !u.within(b, range)) continue;
 
                 boolean valid =
                     target1.func.get(b.team(), u) &&
                     target2.func.get(b.team(), u) &&
                     target3.func.get(b.team(), u);
 
-                if(!valid) return;
+                if(!valid) continue;
 
                 float val = sort.func.get(b, u) * sortDir;
                 if(val > bestValue || best == null){
                     bestValue = val;
                     best = u;
                 }
-            });
+            }
         }
     }
 
@@ -550,17 +606,14 @@ public class LExecutor{
 
         @Override
         public void run(LExecutor exec){
-            Var v = exec.vars[to];
-            Var f = exec.vars[from];
-
             //TODO error out when the from-value is a constant
-            if(!v.constant){
-                if(f.isobj){
-                    v.objval = f.objval;
-                    v.isobj = true;
+            if(!exec.isconst(to)){
+                if(exec.isobj(from)){
+                    exec.objvals[to] = exec.objvals[from];
+                    exec.objects.set(to);
                 }else{
-                    v.numval = f.numval;
-                    v.isobj = false;
+                    exec.numvals[to] = exec.numvals[from];
+                    exec.objects.clear(to);
                 }
             }
         }
@@ -584,10 +637,7 @@ public class LExecutor{
             if(op.unary){
                 exec.setnum(dest, op.function1.get(exec.num(a)));
             }else{
-                Var va = exec.vars[a];
-                Var vb = exec.vars[b];
-
-                if(op.objFunction2 != null && (va.isobj || vb.isobj)){
+                if(op.objFunction2 != null && (exec.isobj(a) || exec.isobj(b))){
                     //use object function if provided, and one of the variables is an object
                     exec.setnum(dest, op.objFunction2.get(exec.obj(a), exec.obj(b)));
                 }else{
@@ -603,7 +653,7 @@ public class LExecutor{
 
         @Override
         public void run(LExecutor exec){
-            exec.vars[varCounter].numval = exec.instructions.length;
+            exec.jump(exec.instructions.length);
         }
     }
 
@@ -686,23 +736,24 @@ public class LExecutor{
             if(exec.textBuffer.length() >= maxTextBuffer) return;
 
             //this should avoid any garbage allocation
-            Var v = exec.vars[value];
-            if(v.isobj && value != 0){
+            if(exec.isobj(value) && value != 0){
+                Object obj = exec.objvals[value];
                 String strValue =
-                    v.objval == null ? "null" :
-                    v.objval instanceof String ? (String)v.objval :
-                    v.objval instanceof Content ? "[content]" :
-                    v.objval instanceof Building ? "[building]" :
-                    v.objval instanceof Unit ? "[unit]" :
+                    obj == null ? "null" :
+                    obj instanceof String ? (String)obj :
+                    obj instanceof Content ? "[content]" :
+                    obj instanceof Building ? "[building]" :
+                    obj instanceof Unit ? "[unit]" :
                     "[object]";
 
                 exec.textBuffer.append(strValue);
             }else{
+                double num = exec.numvals[value];
                 //display integer version when possible
-                if(Math.abs(v.numval - (long)v.numval) < 0.000001){
-                    exec.textBuffer.append((long)v.numval);
+                if(Math.abs(num - (long)num) < 0.000001){
+                    exec.textBuffer.append((long)num);
                 }else{
-                    exec.textBuffer.append(v.numval);
+                    exec.textBuffer.append(num);
                 }
             }
         }
@@ -750,11 +801,9 @@ public class LExecutor{
         @Override
         public void run(LExecutor exec){
             if(address != -1){
-                Var va = exec.vars[value];
-                Var vb = exec.vars[compare];
                 boolean cmp;
 
-                if(op.objFunction != null && (va.isobj || vb.isobj)){
+                if(op.objFunction != null && (exec.isobj(value) || exec.isobj(compare))){
                     //use object function if provided, and one of the variables is an object
                     cmp = op.objFunction.get(exec.obj(value), exec.obj(compare));
                 }else{
@@ -762,7 +811,7 @@ public class LExecutor{
                 }
 
                 if(cmp){
-                    exec.vars[varCounter].numval = address;
+                    exec.jump(address);
                 }
             }
         }
@@ -0,0 +1,96 @@
+package mindustry.logic;
+
+import arc.*;
+import arc.struct.*;
+import mindustry.game.EventType.*;
+import mindustry.gen.*;
+import mindustry.net.Administration.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Runs queued logic processors once per frame, when parallel execution is enabled with {@link Config#parallelLogic}.
+ * Local instructions at the start of each processor's budget are run on worker threads, since they only touch the
+ * processor's own state. Everything from the first world-affecting instruction onwards is then run on the main thread,
+ * in the order the processors were queued.
+ * <p>
+ * Note that this changes when processors act on the world: instead of running during their own building update,
+ * all processors run after every building and unit has updated for the frame. Processors still see each other's
+ * effects in update order, but no longer see other blocks update between them. This is why it is opt-in; when disabled,
+ * processors run during their own update as usual and nothing is queued.
+ */
+public class LScheduler{
+    /** Minimum amount of queued processors before work is split across threads. */
+    public int parallelThreshold = 8;
+    /** Amount of processors handled by a single task. */
+    public int chunkSize = 16;
+    /** Whether processors are queued, and their local instructions run on worker threads. Read from {@link Config#parallelLogic} on world load. */
+    public boolean parallel = false;
+
+    private final Seq<Building> owners = new Seq<>();
+    private final Seq<LExecutor> executors = new Seq<>();
+    private final IntSeq budgets = new IntSeq();
+    private final Seq<Future<?>> futures = new Seq<>();
+
+    public LScheduler(){
+        Events.on(WorldLoadEvent.class, e -> {
+            clear();
+            parallel = Config.parallelLogic.bool();
+        });
+    }
+
+    /** Queues an executor to run the specified amount of instructions during the next {@link #update()}. */
+    public void schedule(Building owner, LExecutor executor, int budget){
+        if(budget <= 0 || !executor.initialized()) return;
+
+        owners.add(owner);
+        executors.add(executor);
+        budgets.add(budget);
+    }
+
+    /** Runs all queued executors. Must be called on the main thread. */
+    public void update(){
+        if(executors.isEmpty()) return;
+
+        int[] budgets = this.budgets.items;
+
+        if(parallel && executors.size >= parallelThreshold){
+            futures.clear();
+            for(int i = 0; i < executors.size; i += chunkSize){
+                int start = i, end = Math.min(i + chunkSize, executors.size);
+                futures.add(ForkJoinPool.commonPool().submit(() -> {
+                    for(int j = start; j < end; j++){
+                        budgets[j] -= executors.get(j).runLocal(budgets[j]);
+                    }
+                }));
+            }
+
+            for(Future<?> future : futures){
+                try{
+                    future.get();
+                }catch(Throwable t){
+                    throw new RuntimeException(t);
+                }
+            }
+            futures.clear();
+        }
+
+        //world-affecting instructions, and whatever follows them, run serially in queue order
+        for(int i = 0; i < executors.size; i++){
+            if(!owners.get(i).isValid()) continue;
+
+            LExecutor exec = executors.get(i);
+            for(int j = 0; j < budgets[i]; j++){
+                exec.runOnce();
+            }
+        }
+
+        clear();
+    }
+
+    public void clear(){
+        owners.clear();
+        executors.clear();
+        budgets.clear();
+    }
+}
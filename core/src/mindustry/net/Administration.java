@@ -577,6 +577,9 @@ public class Administration{
         autosave("Whether the periodically save the map when playing.", false),
         autosaveAmount("The maximum amount of autosaves. Older ones get replaced.", 10),
         autosaveSpacing("Spacing between autosaves in seconds.", 60 * 5),
+        pathfinderThreads("Amount of threads used to update flow fields concurrently. 1 to use only the pathfinding thread. Takes effect on the next map load.", 1),
+        flowfieldTimeout("Time in seconds after which flow fields that no unit has used are removed. 0 to never remove them. Takes effect on the next map load.", 60 * 2),
+        parallelLogic("Whether processors run their local instructions on multiple threads. Processors then act on the world after all other blocks and units have updated, instead of during their own update. Takes effect on the next map load.", false),
         debug("Enable debug logging", false, () -> Log.setLogLevel(debug() ? LogLevel.debug : LogLevel.info));
 
         public static final Config[] all = values();
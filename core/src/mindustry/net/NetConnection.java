@@ -29,10 +29,26 @@ public abstract class NetConnection{
     public boolean hasConnected, hasBegunConnecting, hasDisconnected;
     public float viewWidth, viewHeight, viewX, viewY;
 
+    /** Hash of the last sync data sent for each entity ID. Used to skip entities that have not changed. */
+    public IntIntMap syncHashes = new IntIntMap();
+    /** Index of the entity snapshot in which each entity ID was last sent. */
+    public IntIntMap syncFrames = new IntIntMap();
+    /** IDs of entities whose last sync data has been sent twice, so that the client has stopped extrapolating them. */
+    public IntSet syncSettled = new IntSet();
+    /** Amount of entity snapshots written to this connection. */
+    public int snapshotsSent;
+
     public NetConnection(String address){
         this.address = address;
     }
 
+    /** Forgets all sync baselines, forcing the next snapshots to contain every entity. */
+    public void resetSync(){
+        syncHashes.clear();
+        syncFrames.clear();
+        syncSettled.clear();
+    }
+
     /** Kick with a special, localized reason. Use this if possible. */
     public void kick(KickReason reason){
         if(kicked) return;
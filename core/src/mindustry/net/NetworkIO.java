@@ -21,22 +21,27 @@ public class NetworkIO{
     public static void writeWorld(Player player, OutputStream os){
 
         try(DataOutputStream stream = new DataOutputStream(os)){
-            stream.writeUTF(JsonIO.write(state.rules));
-            SaveIO.getSaveWriter().writeStringMap(stream, state.map.tags);
-
-            stream.writeInt(state.wave);
-            stream.writeFloat(state.wavetime);
-
-            stream.writeInt(player.id);
-            player.write(Writes.get(stream));
-
-            SaveIO.getSaveWriter().writeContentHeader(stream);
+            writeWorldHeader(player, stream);
             SaveIO.getSaveWriter().writeMap(stream);
         }catch(IOException e){
             throw new RuntimeException(e);
         }
     }
 
+    /** Writes everything that precedes the map in world data. Unlike the map, this is specific to the player. */
+    public static void writeWorldHeader(Player player, DataOutputStream stream) throws IOException{
+        stream.writeUTF(JsonIO.write(state.rules));
+        SaveIO.getSaveWriter().writeStringMap(stream, state.map.tags);
+
+        stream.writeInt(state.wave);
+        stream.writeFloat(state.wavetime);
+
+        stream.writeInt(player.id);
+        player.write(Writes.get(stream));
+
+        SaveIO.getSaveWriter().writeContentHeader(stream);
+    }
+
     public static void loadWorld(InputStream is){
 
         try(DataInputStream stream = new DataInputStream(is)){
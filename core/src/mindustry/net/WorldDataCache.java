@@ -0,0 +1,118 @@
+package mindustry.net;
+
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.gen.*;
+import mindustry.io.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * Produces compressed world data for joining players.
+ * The map makes up almost all of the data and is the same for every player, so it is serialized once on the main thread
+ * and reused by every join until it is invalidated. Compression happens on a background thread; the map is compressed
+ * once per snapshot, and only the small player-specific header is compressed for each join.
+ * The header is flushed to a byte boundary, so the compressed map can be appended to it as part of the same zlib stream.
+ */
+public class WorldDataCache{
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "World Data Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //main thread only
+    private final ReusableByteOutStream header = new ReusableByteOutStream();
+    private final DataOutputStream headerStream = new DataOutputStream(header);
+    private final ReusableByteOutStream map = new ReusableByteOutStream();
+    private final DataOutputStream mapStream = new DataOutputStream(map);
+    private @Nullable MapSnapshot snapshot;
+
+    //writer thread only
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private final Adler32 checksum = new Adler32();
+    private final byte[] buffer = new byte[8192];
+
+    /** Drops the cached map. Call when the world changes. Main thread only. */
+    public void invalidate(){
+        snapshot = null;
+    }
+
+    /**
+     * Serializes world data for a player and compresses it on a background thread. Main thread only.
+     * @return zlib-compressed world data, as read by {@link NetworkIO#loadWorld(InputStream)}.
+     */
+    public CompletableFuture<byte[]> write(Player player){
+        try{
+            if(snapshot == null){
+                map.reset();
+                SaveIO.getSaveWriter().writeMap(mapStream);
+                snapshot = new MapSnapshot(map.toByteArray());
+            }
+
+            header.reset();
+            NetworkIO.writeWorldHeader(player, headerStream);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+
+        byte[] headerBytes = header.toByteArray();
+        MapSnapshot data = snapshot;
+        return CompletableFuture.supplyAsync(() -> compress(headerBytes, data), executor);
+    }
+
+    private byte[] compress(byte[] headerBytes, MapSnapshot map){
+        if(map.compressed == null){
+            output.reset();
+            deflater.reset();
+            deflater.setInput(map.raw);
+            deflater.finish();
+            while(!deflater.finished()){
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            map.compressed = output.toByteArray();
+        }
+
+        output.reset();
+        //zlib header: deflate with a 32K window, fastest compression
+        output.write(0x78);
+        output.write(0x01);
+
+        //compress the header without ending the stream, then align to a byte boundary
+        deflater.reset();
+        deflater.setInput(headerBytes);
+        int length;
+        do{
+            length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            output.write(buffer, 0, length);
+        }while(length == buffer.length);
+
+        //the map was compressed independently, so it does not refer back to the header
+        output.write(map.compressed, 0, map.compressed.length);
+
+        checksum.reset();
+        checksum.update(headerBytes, 0, headerBytes.length);
+        checksum.update(map.raw, 0, map.raw.length);
+        int value = (int)checksum.getValue();
+        output.write(value >>> 24);
+        output.write(value >>> 16);
+        output.write(value >>> 8);
+        output.write(value);
+
+        return output.toByteArray();
+    }
+
+    private static class MapSnapshot{
+        final byte[] raw;
+        /** compressed on the writer thread when first needed */
+        @Nullable byte[] compressed;
+
+        MapSnapshot(byte[] raw){
+            this.raw = raw;
+        }
+    }
+}
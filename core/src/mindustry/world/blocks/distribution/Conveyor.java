@@ -12,6 +12,7 @@ import mindustry.content.*;
 import mindustry.entities.units.*;
 import mindustry.gen.*;
 import mindustry.graphics.*;
+import mindustry.logic.*;
 import mindustry.type.*;
 import mindustry.ui.*;
 import mindustry.world.*;
@@ -31,6 +32,8 @@ public class Conveyor extends Block implements Autotiler{
 
     public float speed = 0f;
     public float displayedSpeed = 0f;
+    /** Whether straight lines of conveyors with the same speed are updated together by the last conveyor in the line. */
+    public boolean chainUpdates = true;
 
     protected Conveyor(String name){
         super(name);
@@ -112,6 +115,11 @@ public class Conveyor extends Block implements Autotiler{
 
         public float clogHeat = 0f;
 
+        //last conveyor of the straight line this one is part of; it updates every conveyor in the line
+        public @Nullable ConveyorBuild chainTail;
+        //previous conveyor in the line
+        public @Nullable ConveyorBuild prevc;
+
         @Override
         public void draw(){
             int frame = enabled && clogHeat <= 0.5f ? (int)(((Time.time() * speed * 8f * timeScale())) % 4) : 0;
@@ -177,6 +185,80 @@ public class Conveyor extends Block implements Autotiler{
             next = front();
             nextc = next instanceof ConveyorBuild && next.team == team ? (ConveyorBuild)next : null;
             aligned = nextc != null && rotation == next.rotation;
+
+            refreshChain();
+        }
+
+        /** @return the conveyor this one feeds in a straight line, if both can be updated as one chain. */
+        public @Nullable ConveyorBuild chainNext(){
+            if(!chainUpdates) return null;
+
+            Building front = front();
+            return front instanceof ConveyorBuild c && c.team == team && c.rotation == rotation &&
+                ((Conveyor)c.block).chainUpdates && ((Conveyor)c.block).speed == speed ? c : null;
+        }
+
+        /** @return the conveyor feeding this one in a straight line, if both can be updated as one chain. */
+        public @Nullable ConveyorBuild chainPrev(){
+            return back() instanceof ConveyorBuild c && c.chainNext() == this ? c : null;
+        }
+
+        /** Finds the last conveyor of this line and assigns it to this conveyor and every conveyor behind it. */
+        public void refreshChain(){
+            ConveyorBuild tail = this;
+            for(ConveyorBuild n = chainNext(); n != null; n = n.chainNext()){
+                //the end found by a conveyor further along can be reused, as long as it still is an end
+                if(n.chainTail != null && n.chainTail.isValid() && n.chainTail.chainNext() == null){
+                    tail = n.chainTail;
+                    break;
+                }
+                tail = n;
+            }
+
+            for(ConveyorBuild c = this; c != null; c = c.prevc){
+                ConveyorBuild prev = c.chainPrev();
+                //everything behind an up-to-date conveyor was already assigned when it was
+                if(c != this && c.chainTail == tail && c.prevc == prev) break;
+
+                c.chainTail = tail;
+                c.prevc = prev;
+            }
+
+            tail.wake();
+        }
+
+        /** @return whether another conveyor is responsible for updating this one. */
+        public boolean chained(){
+            return chainTail != null && chainTail != this && chainTail.isValid();
+        }
+
+        /** Wakes up this conveyor itself, even if it is updated by another one. */
+        public void wake(){
+            super.noSleep();
+        }
+
+        @Override
+        public void noSleep(){
+            //conveyors in a line are updated by the last one, so that one has to be woken up instead
+            if(chained()){
+                chainTail.noSleep();
+            }else{
+                super.noSleep();
+            }
+        }
+
+        @Override
+        public void applyBoost(float intensity, float duration){
+            super.applyBoost(intensity, duration);
+            //boosts only run out while this conveyor is updating
+            wake();
+        }
+
+        @Override
+        public void control(LAccess type, double p1, double p2, double p3, double p4){
+            super.control(type, p1, p2, p3, p4);
+            //same for logic control timeouts
+            wake();
         }
 
         @Override
@@ -208,14 +290,35 @@ public class Conveyor extends Block implements Autotiler{
 
         @Override
         public void updateTile(){
+            if(chained()){
+                //stay awake until boosts and logic control run out, since those are only updated here
+                if(timeScale() == 1f && enabled) sleep();
+                return;
+            }
+
+            boolean moving = moveItems();
+
+            //update the rest of the line back to front, so every conveyor sees the current state of the next one
+            for(ConveyorBuild c = prevc; c != null && c.chainTail == this && c.isValid(); c = c.prevc){
+                moving |= c.moveItems();
+            }
+
+            if(moving){
+                noSleep();
+            }else{
+                sleep();
+            }
+        }
+
+        /** Moves and passes on the items of this conveyor only. @return whether there were any items. */
+        public boolean moveItems(){
             minitem = 1f;
             mid = 0;
 
             //skip updates if possible
             if(len == 0){
                 clogHeat = 0f;
-                sleep();
-                return;
+                return false;
             }
 
             float nextMax = aligned ? 1f - Math.max(itemSpace - nextc.minitem, 0) : 1f;
@@ -250,7 +353,7 @@ public class Conveyor extends Block implements Autotiler{
                 clogHeat = 0f;
             }
 
-            noSleep();
+            return true;
         }
 
         public boolean pass(Item item) {
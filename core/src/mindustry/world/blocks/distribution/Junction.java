@@ -37,9 +37,11 @@ public class Junction extends Block{
 
         @Override
         public void updateTile(){
+            boolean empty = true;
 
             for(int i = 0; i < 4; i++){
                 if(buffer.indexes[i] > 0){
+                    empty = false;
                     if(buffer.indexes[i] > capacity) buffer.indexes[i] = capacity;
                     long l = buffer.buffers[i][0];
                     float time = BufferItem.time(l);
@@ -60,10 +62,16 @@ public class Junction extends Block{
                     }
                 }
             }
+
+            //nothing buffered; stop updating until an item arrives
+            if(empty){
+                sleep();
+            }
         }
 
         @Override
         public void handleItem(Building source, Item item){
+            noSleep();
             int relative = source.relativeTo(tile);
             buffer.accept(relative, item);
         }
@@ -41,6 +41,9 @@ public class Router extends Block{
                     items.remove(lastItem, 1);
                     lastItem = null;
                 }
+            }else{
+                //nothing to route; stop updating until an item arrives
+                sleep();
             }
         }
 
@@ -56,6 +59,7 @@ public class Router extends Block{
 
         @Override
         public void handleItem(Building source, Item item){
+            noSleep();
             items.add(item, 1);
             lastItem = item;
             time = 0f;
@@ -13,7 +13,6 @@ import mindustry.graphics.*;
 import mindustry.io.*;
 import mindustry.logic.*;
 import mindustry.logic.LAssembler.*;
-import mindustry.logic.LExecutor.*;
 import mindustry.ui.*;
 import mindustry.world.*;
 import mindustry.world.blocks.ConstructBlock.*;
@@ -290,11 +289,11 @@ public class LogicBlock extends Block{
                     asm.putConst("@ipt", instructionsPerTick);
 
                     //store any older variables
-                    for(Var var : executor.vars){
-                        if(!var.constant){
-                            BVar dest = asm.getVar(var.name);
+                    for(int i = 0; i < executor.varCount(); i++){
+                        if(!executor.isconst(i)){
+                            BVar dest = asm.getVar(executor.names[i]);
                             if(dest != null && !dest.constant){
-                                dest.value = var.isobj ? var.objval : var.numval;
+                                dest.value = executor.value(i);
                             }
                         }
                     }
@@ -371,11 +370,21 @@ public class LogicBlock extends Block{
 
                 if(accumulator > maxInstructionScale * instructionsPerTick) accumulator = maxInstructionScale * instructionsPerTick;
 
-                for(int i = 0; i < (int)accumulator; i++){
-                    if(executor.initialized()){
-                        executor.runOnce();
+                if(logicScheduler.parallel){
+                    int budget = 0;
+                    for(int i = 0; i < (int)accumulator; i++){
+                        budget ++;
+                        accumulator --;
+                    }
+
+                    logicScheduler.schedule(this, executor, budget);
+                }else{
+                    for(int i = 0; i < (int)accumulator; i++){
+                        if(executor.initialized()){
+                            executor.runOnce();
+                        }
+                        accumulator --;
                     }
-                    accumulator --;
                 }
             }
         }
@@ -461,18 +470,19 @@ public class LogicBlock extends Block{
             write.b(compressed);
 
             //write only the non-constant variables
-            int count = Structs.count(executor.vars, v -> !v.constant);
+            int count = 0;
+            for(int i = 0; i < executor.varCount(); i++){
+                if(!executor.isconst(i)) count ++;
+            }
 
             write.i(count);
-            for(int i = 0; i < executor.vars.length; i++){
-                Var v = executor.vars[i];
-
-                if(v.constant) continue;
+            for(int i = 0; i < executor.varCount(); i++){
+                if(executor.isconst(i)) continue;
 
                 //write the name and the object value
-                write.str(v.name);
+                write.str(executor.names[i]);
 
-                Object value = v.isobj ? v.objval : v.numval;
+                Object value = executor.value(i);
                 if(value instanceof Unit) value = null; //do not save units.
                 TypeIO.writeObject(write, value);
             }
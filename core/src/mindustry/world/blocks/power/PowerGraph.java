@@ -12,11 +12,18 @@ public class PowerGraph{
     private static final Seq<Building> outArray1 = new Seq<>();
     private static final Seq<Building> outArray2 = new Seq<>();
     private static final IntSet closedSet = new IntSet();
+    private static final IntIntMap searchOwners = new IntIntMap();
+    private static final Seq<Search> searches = new Seq<>();
+    private static final Seq<Building> seeds = new Seq<>();
 
-    private final ObjectSet<Building> producers = new ObjectSet<>();
-    private final ObjectSet<Building> consumers = new ObjectSet<>();
-    private final ObjectSet<Building> batteries = new ObjectSet<>();
-    private final ObjectSet<Building> all = new ObjectSet<>();
+    private final Members producers = new Members();
+    private final Members consumers = new Members();
+    private final Members batteries = new Members();
+    private final Members all = new Members();
+
+    /** Per-consumer scratch data for the current update, indexed like {@link #consumers}. */
+    private float[] requested = {};
+    private boolean[] valid = {};
 
     private final WindowedMean powerBalance = new WindowedMean(60);
     private float lastPowerProduced, lastPowerNeeded, lastPowerStored;
@@ -34,6 +41,11 @@ public class PowerGraph{
         return graphID;
     }
 
+    /** @return the amount of buildings in this graph. */
+    public int size(){
+        return all.size;
+    }
+
     public float getLastScaledPowerIn(){
         return lastScaledPowerIn;
     }
@@ -78,21 +90,20 @@ public class PowerGraph{
 
     public float getPowerProduced(){
         float powerProduced = 0f;
-        for(Building producer : producers){
-            powerProduced += producer.getPowerProduction() * producer.delta();
+        Building[] items = producers.items;
+        for(int i = 0; i < producers.size; i++){
+            powerProduced += items[i].getPowerProduction() * items[i].delta();
         }
         return powerProduced;
     }
 
     public float getPowerNeeded(){
         float powerNeeded = 0f;
-        for(Building consumer : consumers){
-            Consumers consumes = consumer.block.consumes;
-            if(consumes.hasPower()){
-                ConsumePower consumePower = consumes.getPower();
-                if(otherConsumersAreValid(consumer, consumePower)){
-                    powerNeeded += consumePower.requestedPower(consumer) * consumer.delta();
-                }
+        Building[] items = consumers.items;
+        ConsumePower[] power = consumers.power;
+        for(int i = 0; i < consumers.size; i++){
+            if(power[i] != null && otherConsumersAreValid(items[i], power[i])){
+                powerNeeded += power[i].requestedPower(items[i]) * items[i].delta();
             }
         }
         return powerNeeded;
@@ -100,10 +111,11 @@ public class PowerGraph{
 
     public float getBatteryStored(){
         float totalAccumulator = 0f;
-        for(Building battery : batteries){
-            Consumers consumes = battery.block.consumes;
-            if(consumes.hasPower()){
-                totalAccumulator += battery.power.status * consumes.getPower().capacity;
+        Building[] items = batteries.items;
+        ConsumePower[] power = batteries.power;
+        for(int i = 0; i < batteries.size; i++){
+            if(power[i] != null){
+                totalAccumulator += items[i].power.status * power[i].capacity;
             }
         }
         return totalAccumulator;
@@ -111,10 +123,11 @@ public class PowerGraph{
 
     public float getBatteryCapacity(){
         float totalCapacity = 0f;
-        for(Building battery : batteries){
-            if(battery.block.consumes.hasPower()){
-                ConsumePower power = battery.block.consumes.getPower();
-                totalCapacity += (1f - battery.power.status) * power.capacity;
+        Building[] items = batteries.items;
+        ConsumePower[] power = batteries.power;
+        for(int i = 0; i < batteries.size; i++){
+            if(power[i] != null){
+                totalCapacity += (1f - items[i].power.status) * power[i].capacity;
             }
         }
         return totalCapacity;
@@ -122,70 +135,101 @@ public class PowerGraph{
 
     public float getTotalBatteryCapacity(){
         float totalCapacity = 0f;
-        for(Building battery : batteries){
-            if(battery.block.consumes.hasPower()){
-                totalCapacity += battery.block.consumes.getPower().capacity;
+        ConsumePower[] power = batteries.power;
+        for(int i = 0; i < batteries.size; i++){
+            if(power[i] != null){
+                totalCapacity += power[i].capacity;
             }
         }
         return totalCapacity;
     }
 
     public float useBatteries(float needed){
-        float stored = getBatteryStored();
+        return useBatteries(needed, getBatteryStored());
+    }
+
+    float useBatteries(float needed, float stored){
         if(Mathf.equal(stored, 0f)) return 0f;
 
         float used = Math.min(stored, needed);
         float consumedPowerPercentage = Math.min(1.0f, needed / stored);
-        for(Building battery : batteries){
-            Consumers consumes = battery.block.consumes;
-            if(consumes.hasPower()){
-                battery.power.status *= (1f-consumedPowerPercentage);
+        Building[] items = batteries.items;
+        ConsumePower[] power = batteries.power;
+        for(int i = 0; i < batteries.size; i++){
+            if(power[i] != null){
+                items[i].power.status *= (1f-consumedPowerPercentage);
             }
         }
         return used;
     }
 
     public float chargeBatteries(float excess){
-        float capacity = getBatteryCapacity();
+        return chargeBatteries(excess, getBatteryCapacity());
+    }
+
+    float chargeBatteries(float excess, float capacity){
         //how much of the missing in each battery % is charged
         float chargedPercent = Math.min(excess/capacity, 1f);
         if(Mathf.equal(capacity, 0f)) return 0f;
 
-        for(Building battery : batteries){
-            Consumers consumes = battery.block.consumes;
-            if(consumes.hasPower()){
-                ConsumePower consumePower = consumes.getPower();
-                if(consumePower.capacity > 0f){
-                    battery.power.status += (1f- battery.power.status) * chargedPercent;
-                }
+        Building[] items = batteries.items;
+        ConsumePower[] power = batteries.power;
+        for(int i = 0; i < batteries.size; i++){
+            if(power[i] != null && power[i].capacity > 0f){
+                items[i].power.status += (1f- items[i].power.status) * chargedPercent;
             }
         }
         return Math.min(excess, capacity);
     }
 
     public void distributePower(float needed, float produced){
+        prepareConsumers();
+        distributeCached(needed, produced);
+    }
+
+    /** Caches the requested power and validity of every consumer, so they are only computed once per update. */
+    private void prepareConsumers(){
+        if(requested.length < consumers.size){
+            requested = new float[consumers.items.length];
+            valid = new boolean[consumers.items.length];
+        }
+
+        Building[] items = consumers.items;
+        ConsumePower[] power = consumers.power;
+        for(int i = 0; i < consumers.size; i++){
+            if(power[i] != null){
+                requested[i] = power[i].requestedPower(items[i]);
+                valid[i] = otherConsumersAreValid(items[i], power[i]);
+            }
+        }
+    }
+
+    /** Distributes power using the values cached by {@link #prepareConsumers()}. */
+    private void distributeCached(float needed, float produced){
         //distribute even if not needed. this is because some might be requiring power but not using it; it updates consumers
         float coverage = Mathf.zero(needed) && Mathf.zero(produced) ? 0f : Mathf.zero(needed) ? 1f : Math.min(1, produced / needed);
-        for(Building consumer : consumers){
-            Consumers consumes = consumer.block.consumes;
-            if(consumes.hasPower()){
-                ConsumePower consumePower = consumes.getPower();
-                if(consumePower.buffered){
-                    if(!Mathf.zero(consumePower.capacity)){
-                        // Add an equal percentage of power to all buffers, based on the global power coverage in this graph
-                        float maximumRate = consumePower.requestedPower(consumer) * coverage * consumer.delta();
-                        consumer.power.status = Mathf.clamp(consumer.power.status + maximumRate / consumePower.capacity);
-                    }
-                }else{
-                    //valid consumers get power as usual
-                    if(otherConsumersAreValid(consumer, consumePower)){
-                        consumer.power.status = coverage;
-                    }else{ //invalid consumers get an estimate, if they were to activate
-                        consumer.power.status = Math.min(1, produced / (needed + consumePower.usage * consumer.delta()));
-                        //just in case
-                        if(Float.isNaN(consumer.power.status)){
-                            consumer.power.status = 0f;
-                        }
+        Building[] items = consumers.items;
+        ConsumePower[] power = consumers.power;
+        for(int i = 0; i < consumers.size; i++){
+            ConsumePower consumePower = power[i];
+            if(consumePower == null) continue;
+
+            Building consumer = items[i];
+            if(consumePower.buffered){
+                if(!Mathf.zero(consumePower.capacity)){
+                    // Add an equal percentage of power to all buffers, based on the global power coverage in this graph
+                    float maximumRate = requested[i] * coverage * consumer.delta();
+                    consumer.power.status = Mathf.clamp(consumer.power.status + maximumRate / consumePower.capacity);
+                }
+            }else{
+                //valid consumers get power as usual
+                if(valid[i]){
+                    consumer.power.status = coverage;
+                }else{ //invalid consumers get an estimate, if they were to activate
+                    consumer.power.status = Math.min(1, produced / (needed + consumePower.usage * consumer.delta()));
+                    //just in case
+                    if(Float.isNaN(consumer.power.status)){
+                        consumer.power.status = 0f;
                     }
                 }
             }
@@ -195,10 +239,10 @@ public class PowerGraph{
     public void update(){
         if(Core.graphics.getFrameId() == lastFrameUpdated){
             return;
-        }else if(!consumers.isEmpty() && consumers.first().cheating()){
+        }else if(consumers.size > 0 && consumers.items[0].cheating()){
             //when cheating, just set status to 1
-            for(Building tile : consumers){
-                tile.power.status = 1f;
+            for(int i = 0; i < consumers.size; i++){
+                consumers.items[i].power.status = 1f;
             }
 
             lastPowerNeeded = lastPowerProduced = 1f;
@@ -207,18 +251,37 @@ public class PowerGraph{
 
         lastFrameUpdated = Core.graphics.getFrameId();
 
-        float powerNeeded = getPowerNeeded();
+        //single pass over each member list to compute every aggregate
         float powerProduced = getPowerProduced();
-        float rawProduced = powerProduced;
+
+        prepareConsumers();
+        float powerNeeded = 0f;
+        for(int i = 0; i < consumers.size; i++){
+            if(valid[i] && consumers.power[i] != null){
+                powerNeeded += requested[i] * consumers.items[i].delta();
+            }
+        }
+
+        float stored = 0f, capacity = 0f, missing = 0f;
+        Building[] items = batteries.items;
+        ConsumePower[] power = batteries.power;
+        for(int i = 0; i < batteries.size; i++){
+            if(power[i] != null){
+                float status = items[i].power.status;
+                stored += status * power[i].capacity;
+                missing += (1f - status) * power[i].capacity;
+                capacity += power[i].capacity;
+            }
+        }
 
         lastPowerNeeded = powerNeeded;
         lastPowerProduced = powerProduced;
 
         lastScaledPowerIn = powerProduced / Time.delta;
         lastScaledPowerOut = powerNeeded / Time.delta;
-        lastCapacity = getTotalBatteryCapacity();
+        lastCapacity = capacity;
 
-        lastPowerStored = getBatteryStored();
+        lastPowerStored = stored;
 
         powerBalance.add((lastPowerProduced - lastPowerNeeded) / Time.delta);
 
@@ -226,22 +289,39 @@ public class PowerGraph{
 
             if(!Mathf.equal(powerNeeded, powerProduced)){
                 if(powerNeeded > powerProduced){
-                    float powerBatteryUsed = useBatteries(powerNeeded - powerProduced);
+                    float powerBatteryUsed = useBatteries(powerNeeded - powerProduced, stored);
                     powerProduced += powerBatteryUsed;
                     lastPowerProduced += powerBatteryUsed;
                 }else if(powerProduced > powerNeeded){
-                    powerProduced -= chargeBatteries(powerProduced - powerNeeded);
+                    powerProduced -= chargeBatteries(powerProduced - powerNeeded, missing);
                 }
             }
 
-            distributePower(powerNeeded, powerProduced);
+            distributeCached(powerNeeded, powerProduced);
         }
     }
 
     public void addGraph(PowerGraph graph){
-        for(Building tile : graph.all){
-            add(tile);
+        if(graph == this) return;
+
+        //always move the smaller graph, so repeated merges stay cheap
+        if(graph.all.size > all.size){
+            graph.addGraph(this);
+            return;
         }
+
+        for(int i = 0; i < graph.all.size; i++){
+            add(graph.all.items[i]);
+        }
+
+        graph.clear();
+    }
+
+    private void clear(){
+        all.clear();
+        producers.clear();
+        consumers.clear();
+        batteries.clear();
     }
 
     public void add(Building tile){
@@ -286,40 +366,160 @@ public class PowerGraph{
 
     public void remove(Building tile){
         removeSingle(tile);
-        //begin by clearing the closed set
-        closedSet.clear();
 
-        //go through all the connections of this tile
-        for(Building other : tile.getPowerConnections(outArray1)){
-            //a graph has already been assigned to this tile from a previous call, skip it
-            if(other.power.graph != this) continue;
+        seeds.clear();
+        seeds.addAll(tile.getPowerConnections(outArray1));
+        split(seeds, tile);
+    }
 
-            //create graph for this branch
-            PowerGraph graph = new PowerGraph();
-            graph.add(other);
-            //add to queue for BFS
-            queue.clear();
-            queue.addLast(other);
-            while(queue.size > 0){
-                //get child from queue
-                Building child = queue.removeFirst();
-                //remove it from this graph
-                removeSingle(child);
-                //add it to the new branch graph
-                graph.add(child);
-                //go through connections
+    /** Splits this graph if the two buildings are no longer connected, e.g. after a link between them was removed. */
+    public void split(Building a, Building b){
+        seeds.clear();
+        seeds.add(a);
+        seeds.add(b);
+        split(seeds, null);
+    }
+
+    /**
+     * Moves every part of this graph that is no longer connected to the rest into a new graph.
+     * A search starts at each seed, and the searches take turns expanding one building at a time; searches that reach
+     * the same building are joined. Once at most one group of searches can still expand, every finished group is a
+     * complete component and moves into a new graph, while the remaining group keeps this one. The cost is therefore
+     * proportional to the smaller components, not the whole network.
+     * @param excluded a building that is no longer part of the graph, or null.
+     */
+    private void split(Seq<Building> seeds, @Nullable Building excluded){
+        searches.clear();
+        searchOwners.clear();
+
+        for(Building seed : seeds){
+            if(seed == excluded || seed.power == null || seed.power.graph != this || searchOwners.containsKey(seed.pos())) continue;
+
+            Search search = new Search(searches.size);
+            search.queue.addLast(seed);
+            search.visited.add(seed);
+            searchOwners.put(seed.pos(), search.id);
+            searches.add(search);
+        }
+
+        if(searches.size <= 1){
+            searches.clear();
+            return;
+        }
+
+        while(true){
+            boolean anyOpen = false;
+            for(int i = 0; i < searches.size; i++){
+                Search search = searches.get(i);
+                if(search.queue.isEmpty()) continue;
+
+                anyOpen = true;
+                Building child = search.queue.removeFirst();
                 for(Building next : child.getPowerConnections(outArray2)){
-                    //make sure it hasn't looped back, and that the new graph being assigned hasn't already been assigned
-                    //also skip closed tiles
-                    if(next != tile && next.power.graph != graph && !closedSet.contains(next.pos())){
-                        queue.addLast(next);
-                        closedSet.add(next.pos());
+                    if(next == excluded || next.power.graph != this) continue;
+
+                    int owner = searchOwners.get(next.pos(), -1);
+                    if(owner == -1){
+                        searchOwners.put(next.pos(), search.id);
+                        search.queue.addLast(next);
+                        search.visited.add(next);
+                    }else{
+                        int ra = find(owner), rb = find(search.id);
+                        if(ra != rb){
+                            searches.get(ra).parent = rb;
+                        }
                     }
                 }
             }
+
+            //count groups, and how many of them can still grow
+            int groups = 0, open = 0;
+            for(int i = 0; i < searches.size; i++){
+                Search search = searches.get(i);
+                if(search.parent != i) continue;
+
+                groups ++;
+                if(search.open()) open ++;
+            }
+
+            //everything is still connected
+            if(groups <= 1){
+                searches.clear();
+                return;
+            }
+
+            if(open <= 1 || !anyOpen) break;
+        }
+
+        //the group that is still growing (or the largest finished group) stays in this graph
+        int kept = -1, keptSize = -1;
+        for(int i = 0; i < searches.size; i++){
+            if(find(i) != i) continue;
+
+            int size = 0;
+            for(int j = 0; j < searches.size; j++){
+                if(find(j) == i) size += searches.get(j).visited.size;
+            }
+
+            if(searches.get(i).open()){
+                kept = i;
+                break;
+            }else if(size > keptSize){
+                kept = i;
+                keptSize = size;
+            }
+        }
+
+        for(int i = 0; i < searches.size; i++){
+            if(find(i) != i || i == kept) continue;
+
+            PowerGraph graph = new PowerGraph();
+            for(int j = 0; j < searches.size; j++){
+                if(find(j) != i) continue;
+
+                Seq<Building> visited = searches.get(j).visited;
+                for(int k = 0; k < visited.size; k++){
+                    Building build = visited.get(k);
+                    removeSingle(build);
+                    graph.add(build);
+                }
+            }
+
             //update the graph once so direct consumers without any connected producer lose their power
             graph.update();
         }
+
+        searches.clear();
+    }
+
+    private static int find(int search){
+        while(searches.get(search).parent != search){
+            Search s = searches.get(search);
+            s.parent = searches.get(s.parent).parent;
+            search = s.parent;
+        }
+        return search;
+    }
+
+    /** One breadth-first search used while splitting a graph. */
+    private static class Search{
+        final int id;
+        final Queue<Building> queue = new Queue<>();
+        final Seq<Building> visited = new Seq<>();
+        int parent;
+
+        Search(int id){
+            this.id = id;
+            this.parent = id;
+        }
+
+        /** @return whether any search in this group can still expand. Only meaningful for group roots. */
+        boolean open(){
+            for(int i = 0; i < searches.size; i++){
+                if(find(i) == id && !searches.get(i).queue.isEmpty()) return true;
+            }
+            return false;
+        }
     }
 
     private boolean otherConsumersAreValid(Building tile, Consume consumePower){
@@ -331,6 +531,89 @@ public class PowerGraph{
         return true;
     }
 
+    /**
+     * Dense, unordered list of graph members with constant time membership checks.
+     * Most graphs are small and many of their lists stay empty, so storage is only allocated once a member is added.
+     */
+    static class Members{
+        private static final Building[] noItems = {};
+        private static final ConsumePower[] noPower = {};
+
+        Building[] items = noItems;
+        /** Power consumer of each member's block, or null if it has none. */
+        ConsumePower[] power = noPower;
+        int size;
+
+        private @Nullable IntIntMap indices;
+
+        boolean add(Building build){
+            if(indices == null){
+                indices = new IntIntMap();
+            }else if(indices.containsKey(build.id())){
+                return false;
+            }
+
+            if(size == items.length){
+                int capacity = Math.max(size * 2, 4);
+                Building[] newItems = new Building[capacity];
+                ConsumePower[] newPower = new ConsumePower[capacity];
+                System.arraycopy(items, 0, newItems, 0, size);
+                System.arraycopy(power, 0, newPower, 0, size);
+                items = newItems;
+                power = newPower;
+            }
+
+            items[size] = build;
+            power[size] = build.block.consumes.hasPower() ? build.block.consumes.getPower() : null;
+            indices.put(build.id(), size++);
+            return true;
+        }
+
+        boolean remove(Building build){
+            if(indices == null) return false;
+
+            int index = indices.get(build.id(), -1);
+            if(index == -1) return false;
+
+            indices.remove(build.id(), -1);
+            size --;
+
+            //move the last member into the free slot
+            if(index != size){
+                items[index] = items[size];
+                power[index] = power[size];
+                indices.put(items[index].id(), index);
+            }
+
+            items[size] = null;
+            power[size] = null;
+            return true;
+        }
+
+        boolean contains(Building build){
+            return indices != null && indices.containsKey(build.id());
+        }
+
+        void clear(){
+            for(int i = 0; i < size; i++){
+                items[i] = null;
+                power[i] = null;
+            }
+            if(indices != null) indices.clear();
+            size = 0;
+        }
+
+        @Override
+        public String toString(){
+            StringBuilder out = new StringBuilder("[");
+            for(int i = 0; i < size; i++){
+                if(i > 0) out.append(", ");
+                out.append(items[i]);
+            }
+            return out.append("]").toString();
+        }
+    }
+
     @Override
     public String toString(){
         return "PowerGraph{" +
@@ -51,16 +51,9 @@ public class PowerNode extends PowerBlock{
                 power.links.removeValue(value);
                 if(valid) other.power.links.removeValue(entity.pos());
 
-                PowerGraph newgraph = new PowerGraph();
-
-                //reflow from this point, covering all tiles on this side
-                newgraph.reflow(entity);
-
-                if(valid && other.power.graph != newgraph){
-                    //create new graph for other end
-                    PowerGraph og = new PowerGraph();
-                    //reflow from other end
-                    og.reflow(other);
+                //split off whichever side is no longer connected
+                if(valid && other.power.graph == power.graph){
+                    power.graph.split(entity, other);
                 }
             }else if(linkValid(entity, other) && valid && power.links.size < maxNodes){
 
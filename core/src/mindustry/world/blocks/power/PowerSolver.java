@@ -0,0 +1,82 @@
+package mindustry.world.blocks.power;
+
+import arc.struct.*;
+import mindustry.gen.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Updates every power graph at the start of a tick, before buildings update.
+ * Graphs do not share any state, so they are solved concurrently; the result of each graph only depends on its own
+ * members, which makes the outcome independent of thread count and scheduling. Buildings still call
+ * {@link PowerGraph#update()}, which returns immediately for graphs that were already solved this frame.
+ */
+public class PowerSolver{
+    /** Total amount of graph members required before work is split across threads. */
+    public int parallelThreshold = 2048;
+    /** Approximate amount of graph members handled by a single task. */
+    public int chunkSize = 1024;
+    /** Whether graphs may be solved on worker threads. */
+    public boolean parallel = true;
+
+    private final Seq<PowerGraph> graphs = new Seq<>();
+    private final IntSet seen = new IntSet();
+    private final Seq<Future<?>> futures = new Seq<>();
+
+    /** Collects all live graphs and solves them. Must be called on the main thread. */
+    public void update(){
+        graphs.clear();
+        seen.clear();
+
+        for(Building build : Groups.build){
+            if(build.power != null && seen.add(build.power.graph.getID())){
+                graphs.add(build.power.graph);
+            }
+        }
+
+        solve(graphs);
+        graphs.clear();
+    }
+
+    /** Updates each of the given graphs once, on worker threads if they are large enough. Must be called on the main thread. */
+    public void solve(Seq<PowerGraph> graphs){
+        int members = 0;
+        for(int i = 0; i < graphs.size; i++){
+            members += graphs.get(i).size();
+        }
+
+        if(!parallel || graphs.size < 2 || members < parallelThreshold){
+            for(int i = 0; i < graphs.size; i++){
+                graphs.get(i).update();
+            }
+            return;
+        }
+
+        //group graphs into tasks of similar total size
+        futures.clear();
+        int start = 0, count = 0;
+        for(int i = 0; i < graphs.size; i++){
+            count += graphs.get(i).size();
+
+            if(count >= chunkSize || i == graphs.size - 1){
+                int from = start, to = i + 1;
+                futures.add(ForkJoinPool.commonPool().submit(() -> {
+                    for(int j = from; j < to; j++){
+                        graphs.get(j).update();
+                    }
+                }));
+                start = i + 1;
+                count = 0;
+            }
+        }
+
+        for(Future<?> future : futures){
+            try{
+                future.get();
+            }catch(Throwable t){
+                throw new RuntimeException(t);
+            }
+        }
+        futures.clear();
+    }
+}
@@ -10,8 +10,11 @@ import arc.util.CommandHandler.*;
 import arc.util.Timer.*;
 import arc.util.serialization.*;
 import arc.util.serialization.JsonValue.*;
+import mindustry.ai.Pathfinder.*;
+import mindustry.async.*;
 import mindustry.core.GameState.*;
 import mindustry.core.*;
+import mindustry.entities.*;
 import mindustry.game.EventType.*;
 import mindustry.game.*;
 import mindustry.gen.*;
@@ -210,8 +213,8 @@ public class ServerControl implements ApplicationListener{
                     info("&lbAutosaving...");
 
                     try{
-                        SaveIO.save(file);
-                        info("&lbAutosave completed.");
+                        //failures while writing are logged by SaveIO
+                        SaveIO.saveAsync(file, () -> info("&lbAutosave completed."));
                     }catch(Throwable e){
                         err("Autosave failed.", e);
                     }
@@ -359,6 +362,12 @@ public class ServerControl implements ApplicationListener{
                 }
 
                 info("  &ly@ FPS, @ MB used.", Core.graphics.getFramesPerSecond(), Core.app.getJavaHeap() / 1024 / 1024);
+                info("  &lyPhysics: @ / @ / @ ms (ground / legs / flying)",
+                    Strings.fixed(asyncCore.physics.solveTime(PhysicsProcess.layerGround), 2),
+                    Strings.fixed(asyncCore.physics.solveTime(PhysicsProcess.layerLegs), 2),
+                    Strings.fixed(asyncCore.physics.solveTime(PhysicsProcess.layerFlying), 2));
+                info("  &lyUnit query cache: @% hit rate (@ hits / @ misses)",
+                    (int)(Units.queryCache.hitRate() * 100), Units.queryCache.hits, Units.queryCache.misses);
 
                 if(Groups.player.size() > 0){
                     info("  &lyPlayers: @", Groups.player.size());
@@ -900,6 +909,22 @@ public class ServerControl implements ApplicationListener{
             }
         });
 
+        handler.register("pathfinder", "Display the convergence time of every active flow field.", arg -> {
+            if(state.isMenu()){
+                err("Not playing a map.");
+                return;
+            }
+
+            info("Flow fields: &ly@&fr (&ly@&fr threads)", pathfinder.fields().size, Config.pathfinderThreads.num());
+            for(Flowfield field : pathfinder.fields()){
+                if(field.convergeTime < 0){
+                    info("  &ly@&lc / &ly@&fr: not converged", field.getClass().getSimpleName(), field.team().name);
+                }else{
+                    info("  &ly@&lc / &ly@&fr: &lg@&fr ms", field.getClass().getSimpleName(), field.team().name, Strings.fixed(field.convergeTime, 2));
+                }
+            }
+        });
+
         handler.register("gc", "Trigger a garbage collection. Testing only.", arg -> {
             int pre = (int)(Core.app.getJavaHeap() / 1024 / 1024);
             System.gc();
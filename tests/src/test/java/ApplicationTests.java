@@ -1,25 +1,47 @@
 import arc.*;
 import arc.backend.headless.*;
+import arc.files.*;
 import arc.func.*;
 import arc.math.*;
 import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
 import arc.struct.*;
 import arc.util.*;
+import arc.util.async.*;
+import arc.util.io.*;
 import mindustry.*;
+import mindustry.ai.*;
+import mindustry.ai.Pathfinder.*;
+import mindustry.async.*;
+import mindustry.async.PhysicsProcess.*;
+import mindustry.async.PhysicsProcess.PhysicsWorld.*;
 import mindustry.content.*;
 import mindustry.core.*;
 import mindustry.core.GameState.*;
 import mindustry.ctype.*;
+import mindustry.entities.*;
+import mindustry.entities.Units.*;
 import mindustry.entities.units.*;
 import mindustry.game.*;
 import mindustry.gen.*;
 import mindustry.io.*;
+import mindustry.logic.*;
 import mindustry.maps.*;
+import mindustry.net.*;
 import mindustry.net.Net;
+import mindustry.net.Net.*;
 import mindustry.type.*;
 import mindustry.world.*;
+import mindustry.world.blocks.distribution.*;
+import mindustry.world.blocks.logic.MemoryBlock.*;
+import mindustry.world.blocks.power.*;
 import org.junit.jupiter.api.*;
 
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.zip.*;
+
 import static mindustry.Vars.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -123,6 +145,244 @@ public class ApplicationTests{
         world.endMapLoad();
     }
 
+    @Test
+    void powerGraphSplit(){
+        createMap();
+        for(int x = 1; x <= 6; x++){
+            world.tile(x, 1).setBlock(Blocks.battery, Team.sharded);
+        }
+
+        PowerGraph graph = world.build(1, 1).power.graph;
+        assertEquals(6, graph.size());
+        for(int x = 1; x <= 6; x++){
+            assertSame(graph, world.build(x, 1).power.graph);
+        }
+
+        //removing a middle node splits the graph in two
+        world.tile(3, 1).setAir();
+
+        PowerGraph left = world.build(1, 1).power.graph, right = world.build(4, 1).power.graph;
+        assertNotSame(left, right);
+        assertSame(left, world.build(2, 1).power.graph);
+        assertSame(right, world.build(5, 1).power.graph);
+        assertSame(right, world.build(6, 1).power.graph);
+        assertEquals(2, left.size());
+        assertEquals(3, right.size());
+
+        //removing an end node leaves the rest connected
+        world.tile(6, 1).setAir();
+        assertSame(right, world.build(4, 1).power.graph);
+        assertSame(right, world.build(5, 1).power.graph);
+        assertEquals(2, right.size());
+
+        //filling the gap merges both sides again
+        world.tile(3, 1).setBlock(Blocks.battery, Team.sharded);
+        PowerGraph merged = world.build(1, 1).power.graph;
+        assertEquals(5, merged.size());
+        for(int x = 1; x <= 5; x++){
+            assertSame(merged, world.build(x, 1).power.graph);
+        }
+    }
+
+    @Test
+    void cachedUnitQueries(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+        state.rules.waves = true;
+        state.rules.waveTeam = Team.crux;
+
+        Rand rand = new Rand(3);
+        for(int i = 0; i < 300; i++){
+            UnitTypes.dagger.spawn(i % 3 == 0 ? Team.sharded : Team.crux, rand.random(world.unitWidth()), rand.random(world.unitHeight()));
+        }
+        state.teams.updateTeamStats();
+        Units.queryCache.clear();
+
+        Sortf closest = (u, x, y) -> u.dst2(x, y);
+        IntSet cached = new IntSet(), uncached = new IntSet();
+        int found = 0;
+
+        for(int i = 0; i < 200; i++){
+            float x = rand.random(world.unitWidth()), y = rand.random(world.unitHeight()), range = rand.random(10f, 400f);
+
+            //target search, as done by turrets and units
+            Unit[] best = {null};
+            float[] cost = {0f};
+            Units.nearbyEnemies(Team.sharded, x - range, y - range, range * 2f, range * 2f, e -> {
+                if(e.dead() || !e.within(x, y, range)) return;
+
+                float c = closest.cost(e, x, y);
+                if(best[0] == null || c < cost[0]){
+                    best[0] = e;
+                    cost[0] = c;
+                }
+            });
+            assertSame(best[0], Units.bestEnemy(Team.sharded, x, y, range, u -> true, closest), "Query " + i);
+            if(best[0] != null) found ++;
+
+            //radar candidates
+            cached.clear();
+            uncached.clear();
+            Seq<Unit> units = Units.queryCache.units(Team.crux, x, y, range);
+            for(Unit u : units){
+                if(u.within(x, y, range)) cached.add(u.id);
+            }
+            Units.nearby(Team.crux, x, y, range, u -> uncached.add(u.id));
+            assertEquals(uncached, cached, "Query " + i);
+        }
+        assertTrue(found > 0, "No targets were found.");
+
+        //results of uncached queries stay valid while other queries happen
+        Seq<Unit> all = Units.queryCache.units(Team.crux, 0f, 0f, Float.MAX_VALUE);
+        int size = all.size;
+        Seq<Unit> allies = Units.queryCache.units(Team.sharded, 0f, 0f, Float.MAX_VALUE);
+        assertNotSame(all, allies);
+        assertEquals(size, all.size);
+        for(Unit u : all){
+            assertSame(Team.crux, u.team());
+        }
+        for(Unit u : allies){
+            assertSame(Team.sharded, u.team());
+        }
+    }
+
+    @Test
+    void routerSleep(){
+        createMap();
+        Time.setDeltaProvider(() -> 1f);
+        Time.update();
+
+        world.tile(1, 2).setBlock(Blocks.router, Team.sharded);
+        world.tile(2, 2).setBlock(Blocks.router, Team.sharded);
+        world.tile(3, 2).setBlock(Blocks.conveyor, Team.sharded, 0);
+        Building source = world.build(1, 2), router = world.build(2, 2), conveyor = world.build(3, 2);
+
+        //an idle router stops updating
+        for(int i = 0; i < 100; i++){
+            router.update();
+        }
+        assertFalse(router.isAdded());
+
+        //an incoming item wakes it up
+        assertTrue(router.acceptItem(source, Items.copper));
+        router.handleItem(source, Items.copper);
+        assertTrue(router.isAdded());
+
+        for(int i = 0; i < 10 && router.items.total() > 0; i++){
+            router.update();
+        }
+        assertEquals(0, router.items.total());
+        assertTrue(conveyor.items.has(Items.copper));
+
+        //routers removed while asleep stay out of the update loop
+        for(int i = 0; i < 100; i++){
+            router.update();
+        }
+        assertFalse(router.isAdded());
+        world.tile(2, 2).setAir();
+        router.noSleep();
+        assertFalse(router.isAdded());
+    }
+
+    @Test
+    void batchedTileDamage(){
+        int[][] sources = {{8, 8}, {30, 30}, {30, 8}};
+
+        //reference: each explosion damages buildings immediately, one cell at a time
+        fillWalls();
+        for(int[] source : sources){
+            unbatchedTileDamage(Team.crux, source[0], source[1], 6, 900f);
+        }
+        float[] expected = buildingHealth();
+
+        fillWalls();
+        for(int[] source : sources){
+            Damage.tileDamage(Team.crux, source[0], source[1], 6, 900f);
+        }
+        //nothing happens until the batch is applied
+        assertArrayEquals(buildingHealth(), fullHealth());
+        Damage.applyTileDamage();
+
+        float[] result = buildingHealth(), full = fullHealth();
+        assertArrayEquals(expected, result);
+
+        int damaged = 0;
+        for(int i = 0; i < result.length; i++){
+            if(result[i] != full[i]) damaged ++;
+        }
+        assertTrue(damaged > 0, "No damage was dealt.");
+    }
+
+    void fillWalls(){
+        //apply anything queued by earlier tests to the old world first
+        Damage.applyTileDamage();
+
+        Tiles tiles = world.resize(40, 40);
+        world.beginMapLoad();
+        tiles.fill();
+        world.endMapLoad();
+
+        for(Tile tile : world.tiles){
+            tile.setBlock(Blocks.copperWall, Team.sharded);
+        }
+    }
+
+    /** @return health of the building on every tile, or -1 for tiles without one. */
+    float[] buildingHealth(){
+        float[] health = new float[world.width() * world.height()];
+        for(int i = 0; i < health.length; i++){
+            Building build = world.tiles.get(i % world.width(), i / world.width()).build;
+            health[i] = build == null || !build.isValid() ? -1f : build.health();
+        }
+        return health;
+    }
+
+    float[] fullHealth(){
+        float[] health = new float[world.width() * world.height()];
+        for(int i = 0; i < health.length; i++){
+            health[i] = Blocks.copperWall.health;
+        }
+        return health;
+    }
+
+    /** The previous tile damage propagation, which damaged each building as soon as the damage reached it. */
+    void unbatchedTileDamage(Team team, int startx, int starty, int baseRadius, float baseDamage){
+        int size = 30, offset = size / 2;
+        boolean[][] visited = new boolean[size][size];
+        Queue<int[]> propagation = new Queue<>();
+
+        propagation.addFirst(new int[]{0, 0, (short)baseDamage});
+        int radius = Math.min(baseRadius, offset);
+
+        while(!propagation.isEmpty()){
+            int[] prop = propagation.removeLast();
+            int x = prop[0], y = prop[1], damage = prop[2];
+            int dst = Math.abs(x) + Math.abs(y);
+            int scaledDamage = (int)(damage * (1f - (float)dst / radius));
+
+            visited[offset + x][offset + y] = true;
+            Tile tile = world.tile(startx + x, starty + y);
+
+            if(scaledDamage <= 0 || tile == null) continue;
+
+            if(tile.build != null && tile.team() != team){
+                int health = (int)tile.build.health();
+                if(tile.build.health() > 0){
+                    tile.build.damage(scaledDamage);
+                    scaledDamage -= health;
+
+                    if(scaledDamage <= 0) continue;
+                }
+            }
+
+            for(Point2 p : Geometry.d4){
+                if(!visited[offset + x + p.x][offset + y + p.y]){
+                    propagation.addFirst(new int[]{(byte)(x + p.x), (byte)(y + p.y), (short)scaledDamage});
+                }
+            }
+        }
+    }
+
     @Test
     void multiblock(){
         createMap();
@@ -213,6 +473,85 @@ public class ApplicationTests{
         assertTrue(state.teams.playerCores().size > 0);
     }
 
+    @Test
+    void regionSaveMeta(){
+        world.loadMap(testMap);
+        Fi file = saveDirectory.child("2.msav");
+        SaveIO.save(file);
+
+        assertTrue(SaveRegions.isRegionFile(file));
+        assertTrue(SaveIO.isSaveValid(file));
+        assertEquals(state.map.name(), SaveIO.getMeta(file).tags.get("mapname"));
+    }
+
+    @Test
+    void importSaveAsMap() throws IOException{
+        world.loadMap(testMap);
+        String name = state.map.name();
+        Fi file = saveDirectory.child("3.msav");
+        SaveIO.save(file);
+
+        //saves written by this build use the region format
+        Map map = MapIO.createMap(file, true);
+        assertEquals(world.width(), map.width);
+        assertEquals(world.height(), map.height);
+        assertEquals(name, map.tags.get("mapname"));
+
+        resetWorld();
+        MapIO.loadMap(map);
+        assertEquals(map.width, world.width());
+        assertEquals(map.height, world.height());
+        assertTrue(state.teams.playerCores().size > 0);
+
+        //older saves are a single compressed stream
+        Map old = MapIO.createMap(Core.files.internal("85.msav"), true);
+        assertEquals(250, old.width);
+        assertEquals(300, old.height);
+
+        resetWorld();
+        MapIO.loadMap(old);
+        assertEquals(250, world.width());
+        assertEquals(300, world.height());
+    }
+
+    @Test
+    void loadAsyncSave() throws Exception{
+        world.loadMap(testMap);
+        Map map = state.map;
+
+        SaveIO.saveAsync(saveDirectory.child("1.msav"), null).get();
+        resetWorld();
+        SaveIO.load(saveDirectory.child("1.msav"));
+
+        assertEquals(world.width(), map.width);
+        assertEquals(world.height(), map.height);
+        assertTrue(state.teams.playerCores().size > 0);
+    }
+
+    @Test
+    void asyncThenSyncSave(){
+        world.loadMap(testMap);
+        Fi file = saveDirectory.child("4.msav");
+
+        state.wave = 3;
+        SaveIO.saveAsync(file, null);
+        state.wave = 7;
+        SaveIO.save(file);
+
+        assertTrue(SaveIO.isSaveValid(file));
+        assertEquals(7, SaveIO.getMeta(file).wave);
+
+        //metadata reads wait for saves that are still being written
+        state.wave = 9;
+        SaveIO.saveAsync(file, null);
+        assertEquals(9, SaveIO.getMeta(file).wave);
+
+        resetWorld();
+        SaveIO.load(file);
+        assertEquals(9, state.wave);
+        assertTrue(state.teams.playerCores().size > 0);
+    }
+
     void updateBlocks(int times){
         for(Tile tile : world.tiles){
             if(tile.build != null && tile.isCenter()){
@@ -357,6 +696,498 @@ public class ApplicationTests{
 
     }
 
+    @Test
+    void flowfieldRepair(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        Flowfield field = pathfinder.getField(state.rules.waveTeam, Pathfinder.costGround, Pathfinder.fieldCore);
+        //update fields on this thread, so that every change is fully propagated before it is checked
+        pathfinder.stopThread();
+        pathfinder.updateFields();
+        assertTrue(field.converged());
+
+        //direction of travel from every tile, which must be restored once a wall is placed and removed again
+        int[] expected = flowDirections(field);
+
+        Rand r = new Rand();
+        int changes = 30;
+        long[] expansions = new long[2];
+
+        //compare complete recalculation against local repair for the same sequence of placed and removed walls
+        for(int mode = 0; mode < 2; mode++){
+            pathfinder.incremental = mode == 1;
+            r.setSeed(0);
+            long start = field.expansions;
+
+            for(int i = 0; i < changes; i++){
+                Tile tile = world.tile(r.random(0, world.width() - 1), r.random(0, world.height() - 1));
+                if(tile.block() != Blocks.air || tile.floor().isDeep()) continue;
+
+                tile.setBlock(Blocks.copperWall, Team.sharded);
+                pathfinder.updateTile(tile);
+                pathfinder.updateFields();
+                assertTrue(field.converged());
+
+                tile.setAir();
+                pathfinder.updateTile(tile);
+                pathfinder.updateFields();
+                assertArrayEquals(expected, flowDirections(field), "Flow field differs after changing " + tile);
+            }
+
+            expansions[mode] = field.expansions - start;
+        }
+
+        pathfinder.incremental = true;
+
+        //repairing only the affected area must do less work than recalculating the whole field
+        assertTrue(expansions[1] < expansions[0], "Repair expanded " + expansions[1] + " tiles, recalculation " + expansions[0]);
+    }
+
+    /** @return the packed position of the next tile on the path from every tile, or -1 for solid tiles. */
+    int[] flowDirections(Flowfield field){
+        int[] out = new int[world.width() * world.height()];
+        for(Tile tile : world.tiles){
+            Tile target = pathfinder.getTargetTile(tile, field);
+            out[tile.x + tile.y * world.width()] = tile.solid() || target == null ? -1 : target.pos();
+        }
+        return out;
+    }
+
+    @Test
+    void spatialIndices(){
+        float size = 200 * tilesize;
+        Rand r = new Rand(0);
+        Seq<TestHitbox> objects = new Seq<>();
+        for(int i = 0; i < 2000; i++){
+            objects.add(new TestHitbox(r.random(size), r.random(size), r.random(2f, 40f)));
+        }
+
+        SpatialIndex<TestHitbox>[] indices = new SpatialIndex[]{new SpatialIndex.QuadTreeIndex<TestHitbox>(), new SpatialGrid<TestHitbox>()};
+        for(SpatialIndex<TestHitbox> index : indices){
+            index.resize(0, 0, size, size);
+            for(TestHitbox obj : objects){
+                index.insert(obj);
+            }
+        }
+
+        Rect rect = new Rect(), hitbox = new Rect();
+        ObjectSet<TestHitbox> expected = new ObjectSet<>(), unique = new ObjectSet<>();
+        Seq<TestHitbox> found = new Seq<>();
+
+        for(int q = 0; q < 500; q++){
+            rect.set(r.random(-50f, size), r.random(-50f, size), r.random(1f, 200f), r.random(1f, 200f));
+
+            expected.clear();
+            for(TestHitbox obj : objects){
+                obj.hitbox(hitbox);
+                if(hitbox.overlaps(rect)) expected.add(obj);
+            }
+
+            for(SpatialIndex<TestHitbox> index : indices){
+                found.clear();
+                index.intersect(rect.x, rect.y, rect.width, rect.height, found::add);
+
+                String name = index.getClass().getSimpleName();
+                unique.clear();
+                for(TestHitbox obj : found){
+                    assertTrue(expected.contains(obj), name + " returned an object outside of " + rect);
+                    assertTrue(unique.add(obj), name + " returned an object twice for " + rect);
+                }
+                assertEquals(expected.size, found.size, name + " missed objects in " + rect);
+            }
+        }
+    }
+
+    @Test
+    void entityRemoval(){
+        EntityGroup<Bullet> group = new EntityGroup<>(Bullet.class, false, true);
+        Seq<Bullet> bullets = new Seq<>();
+        Rand r = new Rand(0);
+        int amount = 2000;
+
+        for(int i = 0; i < amount; i++){
+            Bullet bullet = Bullet.create();
+            bullets.add(bullet);
+            group.add(bullet);
+        }
+
+        //replace random entities, which moves others to new positions in the group
+        for(int i = 0; i < amount * 10; i++){
+            int idx = r.random(0, bullets.size - 1);
+            group.remove(bullets.get(idx));
+
+            Bullet bullet = Bullet.create();
+            bullets.set(idx, bullet);
+            group.add(bullet);
+        }
+
+        assertEquals(amount, group.size());
+        IntSet ids = new IntSet();
+        for(Bullet bullet : bullets){
+            assertSame(bullet, group.getByID(bullet.id));
+            ids.add(bullet.id);
+        }
+        group.each(bullet -> assertTrue(ids.contains(bullet.id), "Removed entity is still in the group."));
+
+        //entities removed while iterating must not cause others to be skipped
+        IntIntMap visits = new IntIntMap();
+        int[] kept = {0};
+        group.each(bullet -> {
+            visits.put(bullet.id, visits.get(bullet.id, 0) + 1);
+            if(bullet.id % 3 == 0){
+                group.remove(bullet);
+            }else{
+                kept[0] ++;
+            }
+        });
+
+        for(Bullet bullet : bullets){
+            assertEquals(1, visits.get(bullet.id, 0));
+        }
+        assertEquals(kept[0], group.size());
+
+        for(Bullet bullet : bullets){
+            group.remove(bullet);
+        }
+        assertTrue(group.isEmpty());
+    }
+
+    static class TestHitbox implements QuadTreeObject{
+        float x, y, size;
+
+        TestHitbox(float x, float y, float size){
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+
+        @Override
+        public void hitbox(Rect out){
+            out.setCentered(x, y, size, size);
+        }
+    }
+
+    @Test
+    void logicCompilerDifferential(){
+        String[] programs = {
+            "set i 0\nset x 1\nop add i i 1\nop mul x x 1.5\nop mod x x 1000\nop sub y x i\nop div z y 0\nop idiv w i 3\nop pow p i 2\n" +
+            "op shl s i 2\nop max m x i\nop sin q i\nop abs r y\nop lessThan l i x\njump 2 lessThan i 100\nset @counter 0",
+            "op add a a 1\njump 3 greaterThanEq a 10\njump 0 always\nop equal e a 10\nop notEqual n a \"str\"\nset str \"hello\"\n" +
+            "op equal f str \"hello\"\njump 9 equal str \"hello\"\nset g 5\nop lessThanEq h a g\nset true 2\nop add false a 1\njump 0 notEqual a 20\nend",
+            "set a null\nop add b a 1\nop greaterThan c b a\njump 5 greaterThan b 0\nset d 1\nop sub b 0 b\njump 1 lessThanEq b 3\nop xor e b 7\nend",
+            //tight arithmetic loop; every operand goes through the executor's variable storage
+            "op add i i 1\nop mul x i 2\nop sub y x 1\njump 0 lessThan i 100000000"
+        };
+
+        for(String code : programs){
+            LExecutor interpreted = new LExecutor(), compiled = new LExecutor();
+            interpreted.compile = false;
+            interpreted.load(code, LExecutor.maxInstructions);
+            compiled.load(code, LExecutor.maxInstructions);
+
+            for(int i = 0; i < 10000; i++){
+                interpreted.runOnce();
+                compiled.runOnce();
+            }
+
+            assertEquals(interpreted.varCount(), compiled.varCount());
+            for(int i = 0; i < interpreted.varCount(); i++){
+                if(i == LExecutor.varTime) continue;
+
+                String name = interpreted.names[i];
+                assertEquals(interpreted.isobj(i), compiled.isobj(i), name);
+                if(interpreted.isobj(i)){
+                    assertEquals(interpreted.objvals[i], compiled.objvals[i], name);
+                }else{
+                    assertEquals(interpreted.numvals[i], compiled.numvals[i], name);
+                }
+            }
+        }
+    }
+
+    @Test
+    void logicScheduleOrder(){
+        createMap();
+        world.tile(1, 1).setBlock(Blocks.memoryCell, Team.sharded);
+        MemoryBuild cell = (MemoryBuild)world.build(1, 1);
+
+        LScheduler scheduler = new LScheduler();
+        scheduler.parallel = true;
+        scheduler.parallelThreshold = 1;
+        scheduler.chunkSize = 1;
+
+        //world-affecting instructions are deferred until the scheduler runs, after buildings have updated
+        LExecutor writer = logicExecutor("set v 7\nwrite v cell 0", cell), reader = logicExecutor("set x 1\nread r cell 0", cell);
+        scheduler.schedule(cell, writer, 2);
+        scheduler.schedule(cell, reader, 2);
+        assertEquals(0, cell.memory[0]);
+
+        //they then run in the order processors were queued, after every local prefix
+        scheduler.update();
+        assertEquals(7, cell.memory[0]);
+        assertEquals(7, logicVar(reader, "r"));
+
+        //queued the other way around, the read happens before the write
+        cell.memory[0] = 0;
+        writer = logicExecutor("set v 7\nwrite v cell 0", cell);
+        reader = logicExecutor("set x 1\nread r cell 0", cell);
+        scheduler.schedule(cell, reader, 2);
+        scheduler.schedule(cell, writer, 2);
+        scheduler.update();
+        assertEquals(0, logicVar(reader, "r"));
+        assertEquals(7, cell.memory[0]);
+    }
+
+    LExecutor logicExecutor(String code, Building cell){
+        LAssembler asm = LAssembler.assemble(code, LExecutor.maxInstructions);
+        asm.putConst("cell", cell);
+        LExecutor exec = new LExecutor();
+        exec.load(asm);
+        return exec;
+    }
+
+    double logicVar(LExecutor exec, String name){
+        for(int i = 0; i < exec.varCount(); i++){
+            if(exec.names[i].equals(name)) return exec.num(i);
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    @Test
+    void snapshotResumeInterpolation(){
+        Unit server = UnitTypes.dagger.create(Team.sharded), client = UnitTypes.dagger.create(Team.sharded);
+
+        server.set(0f, 0f);
+        syncSnapshot(server, client, true);
+
+        //the unit did not change for a few snapshots, so the server skipped it
+        Threads.sleep(NetServer.snapshotSpacing * 3);
+
+        server.set(80f, 0f);
+        syncSnapshot(server, client, false);
+
+        //until the next snapshot is due, the unit moves towards its new position without passing it
+        long start = Time.millis();
+        while(Time.timeSinceMillis(start) < NetServer.snapshotSpacing){
+            client.interpolate();
+            assertTrue(client.x >= 0f && client.x <= 80f + 0.001f, "Unit extrapolated to " + client.x);
+            Threads.sleep(10);
+        }
+        assertTrue(client.x > 0f);
+    }
+
+    @Test
+    void blockSnapshotChanges() throws IOException{
+        createMap();
+        world.tile(2, 2).setBlock(Blocks.graphitePress, Team.sharded);
+        world.tile(5, 5).setBlock(Blocks.graphitePress, Team.sharded);
+        Building changed = world.build(5, 5);
+
+        //the first snapshot of a world sends every building, the next one only what changed
+        assertEquals(2, netServer.writeBlockSnapshots());
+        assertEquals(0, netServer.writeBlockSnapshots());
+        //periodic full snapshot
+        assertEquals(2, netServer.writeBlockSnapshots());
+
+        changed.items.add(Items.coal, 2);
+        assertEquals(1, netServer.writeBlockSnapshots());
+        assertEquals(2, netServer.writeBlockSnapshots());
+        assertEquals(0, netServer.writeBlockSnapshots());
+    }
+
+    @Test
+    void sharedEntitySnapshots(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        int[] writes = {0};
+        Unit unit = new UnitEntity(){
+            @Override
+            public void writeSync(Writes write){
+                writes[0] ++;
+                super.writeSync(write);
+            }
+        };
+        unit.team = Team.sharded;
+        unit.type(UnitTypes.flare);
+        unit.heal();
+        unit.set(world.unitWidth() / 2f, world.unitHeight() / 2f);
+        unit.add();
+
+        Seq<Player> players = new Seq<>();
+        for(int i = 0; i < 3; i++){
+            Player player = Player.create();
+            player.con = new NetConnection("127.0.0.1"){
+                @Override
+                public void send(Object object, SendMode mode){}
+
+                @Override
+                public void close(){}
+            };
+            player.con.hasConnected = true;
+            player.add();
+            players.add(player);
+        }
+
+        //one sync serializes every entity once, no matter how many players receive it
+        netServer.writeEntitySnapshots();
+        assertEquals(1, writes[0]);
+        for(Player player : players){
+            assertTrue(player.con.syncFrames.containsKey(unit.id), "Snapshot was not sent to every player.");
+        }
+
+        netServer.writeEntitySnapshots();
+        assertEquals(2, writes[0]);
+
+        for(Player player : players){
+            player.remove();
+        }
+        unit.remove();
+    }
+
+    @Test
+    void cachedWorldData() throws Exception{
+        world.loadMap(testMap);
+        state.set(State.playing);
+        Player player = Player.create();
+        WorldDataCache cache = new WorldDataCache();
+
+        //the second write reuses the map serialized by the first
+        for(int i = 0; i < 2; i++){
+            assertArrayEquals(worldData(player), inflate(cache.write(player).get()));
+        }
+
+        world.tile(2, 2).setBlock(Blocks.copperWall, Team.sharded);
+        cache.invalidate();
+        assertArrayEquals(worldData(player), inflate(cache.write(player).get()));
+    }
+
+    byte[] worldData(Player player){
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NetworkIO.writeWorld(player, out);
+        return out.toByteArray();
+    }
+
+    byte[] inflate(byte[] bytes) throws IOException{
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Streams.copy(new InflaterInputStream(new ByteArrayInputStream(bytes)), out);
+        return out.toByteArray();
+    }
+
+    void syncSnapshot(Syncc from, Syncc to, boolean created){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        from.writeSync(Writes.get(new DataOutputStream(bytes)));
+        NetClient.readSnapshot(to, Reads.get(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))), created);
+    }
+
+    @Test
+    void parallelPhysics(){
+        Rect bounds = new Rect(0, 0, 400, 400);
+        PhysicsWorld parallel = new PhysicsWorld(bounds), sequential = new PhysicsWorld(bounds);
+        sequential.parallel = false;
+
+        Seq<PhysicsBody> parallelBodies = new Seq<>(), sequentialBodies = new Seq<>();
+        FloatSeq startX = new FloatSeq();
+        Rand rand = new Rand(0);
+
+        //crowd bodies of every layer together so that most of them overlap
+        for(int i = 0; i < 600; i++){
+            float x = rand.random(100f, 300f), y = rand.random(100f, 300f), radius = rand.random(2f, 12f), mass = rand.random(1f, 20f);
+            int layer = rand.random(PhysicsProcess.layers - 1);
+            startX.add(x);
+
+            for(PhysicsWorld physics : new PhysicsWorld[]{parallel, sequential}){
+                PhysicsBody body = new PhysicsBody();
+                body.x = x;
+                body.y = y;
+                body.radius = radius;
+                body.mass = mass;
+                body.layer = layer;
+                physics.add(body);
+                (physics == parallel ? parallelBodies : sequentialBodies).add(body);
+            }
+        }
+
+        for(int step = 0; step < 10; step++){
+            parallel.update();
+            sequential.update();
+        }
+
+        int moved = 0;
+        for(int i = 0; i < parallelBodies.size; i++){
+            PhysicsBody a = parallelBodies.get(i), b = sequentialBodies.get(i);
+            assertEquals(b.x, a.x, "Body " + i + " x");
+            assertEquals(b.y, a.y, "Body " + i + " y");
+            if(a.x != startX.get(i)) moved ++;
+        }
+        assertTrue(moved > 0, "No bodies were pushed apart.");
+
+        for(int i = 0; i < PhysicsProcess.layers; i++){
+            assertTrue(parallel.solveTime(i) >= 0f);
+        }
+    }
+
+    @Test
+    void asyncProcessScheduling(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        AsyncCore core = new AsyncCore();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        AtomicBoolean writing = new AtomicBoolean(), overlapped = new AtomicBoolean();
+
+        //writes units; it can only get past the barrier if the independent process runs at the same time
+        core.add(new TestProcess(0, AsyncCore.dataUnits, () -> {
+            writing.set(true);
+            barrier.await(10, TimeUnit.SECONDS);
+            Threads.sleep(50);
+            writing.set(false);
+            return null;
+        }));
+        core.add(new TestProcess(0, 0, () -> barrier.await(10, TimeUnit.SECONDS)));
+        //reads units, so it has to wait until the writer is done
+        core.add(new TestProcess(AsyncCore.dataUnits, 0, () -> {
+            overlapped.set(writing.get());
+            return null;
+        }));
+
+        core.begin();
+        core.end();
+
+        assertFalse(overlapped.get(), "Conflicting processes ran at the same time.");
+    }
+
+    static class TestProcess implements AsyncProcess{
+        final int reads, writes;
+        final Callable<?> task;
+
+        TestProcess(int reads, int writes, Callable<?> task){
+            this.reads = reads;
+            this.writes = writes;
+            this.task = task;
+        }
+
+        @Override
+        public void process(){
+            try{
+                task.call();
+            }catch(Exception e){
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public int reads(){
+            return reads;
+        }
+
+        @Override
+        public int writes(){
+            return writes;
+        }
+    }
+
     @Test
     void conveyorBench(){
         int[] itemsa = {0};
@@ -405,6 +1236,68 @@ public class ApplicationTests{
         assertNotEquals(0, itemsa[0]);
     }
 
+    @Test
+    void conveyorChains(){
+        Conveyor conveyor = (Conveyor)Blocks.conveyor;
+        int ticks = 20000;
+
+        try{
+            conveyor.chainUpdates = false;
+            int separate = conveyorLine(ticks);
+
+            conveyor.chainUpdates = true;
+            int chained = conveyorLine(ticks);
+
+            assertNotEquals(0, chained);
+            //update order only changes how long the first item takes to arrive, not throughput
+            assertEquals(separate, chained, separate * 0.05f);
+        }finally{
+            conveyor.chainUpdates = true;
+        }
+    }
+
+    /** @return the amount of items delivered by a straight line of conveyors. */
+    int conveyorLine(int ticks){
+        int[] itemsa = {0};
+
+        world.loadMap(testMap);
+        state.set(State.playing);
+        int length = 128;
+        world.tile(0, 0).setBlock(Blocks.itemSource);
+        world.tile(0, 0).build.configureAny(Items.copper);
+
+        Seq<Building> entities = Seq.with(world.tile(0, 0).build);
+
+        for(int i = 0; i < length; i++){
+            world.tile(i + 1, 0).setBlock(Blocks.conveyor, Team.derelict, 0);
+            entities.add(world.tile(i + 1, 0).build);
+        }
+
+        world.tile(length + 1, 0).setBlock(new Block("___"){{
+            hasItems = true;
+            destructible = true;
+            buildType = () -> new Building(){
+                @Override
+                public void handleItem(Building source, Item item){
+                    itemsa[0] ++;
+                }
+
+                @Override
+                public boolean acceptItem(Building source, Item item){
+                    return true;
+                }
+            };
+        }});
+
+        entities.each(Building::updateProximity);
+
+        for(int i = 0; i < ticks; i++){
+            entities.each(Building::update);
+        }
+
+        return itemsa[0];
+    }
+
     @Test
     void load77Save(){
         resetWorld();
@@ -0,0 +1,114 @@
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.entities.*;
+import mindustry.gen.*;
+import mindustry.logic.*;
+import org.junit.jupiter.api.*;
+
+import static mindustry.Vars.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Timing benchmarks. These only log their results, and are run with the 'benchmark' task instead of the regular tests. */
+@Tag("benchmark")
+public class Benchmarks{
+
+    @BeforeAll
+    static void launchApplication(){
+        ApplicationTests.launchApplication();
+    }
+
+    @Test
+    void spatialIndex(){
+        float size = 500 * tilesize;
+        int iterations = 20, queries = 1000;
+
+        for(int amount : new int[]{1000, 10000, 50000}){
+            Rand r = new Rand(0);
+            Seq<ApplicationTests.TestHitbox> objects = new Seq<>();
+            for(int i = 0; i < amount; i++){
+                objects.add(new ApplicationTests.TestHitbox(r.random(size), r.random(size), r.random(2f, 8f)));
+            }
+
+            SpatialIndex<ApplicationTests.TestHitbox>[] indices = new SpatialIndex[]{new SpatialIndex.QuadTreeIndex<ApplicationTests.TestHitbox>(), new SpatialGrid<ApplicationTests.TestHitbox>()};
+            int[] found = new int[indices.length];
+
+            for(int i = 0; i < indices.length; i++){
+                SpatialIndex<ApplicationTests.TestHitbox> index = indices[i];
+                int slot = i;
+                index.resize(0, 0, size, size);
+                r.setSeed(1);
+
+                Time.mark();
+                for(int it = 0; it < iterations; it++){
+                    index.clear();
+                    for(ApplicationTests.TestHitbox obj : objects){
+                        index.insert(obj);
+                    }
+
+                    for(int q = 0; q < queries; q++){
+                        index.intersect(r.random(size), r.random(size), 80f, 80f, o -> found[slot] ++);
+                    }
+                }
+
+                Log.info("@: @ms to rebuild and query @ entities @ times", index.getClass().getSimpleName(), Time.elapsed(), amount, iterations);
+            }
+
+            assertEquals(found[0], found[1], "Spatial indices returned different results.");
+        }
+    }
+
+    @Test
+    void entityRemoval(){
+        EntityGroup<Bullet> group = new EntityGroup<>(Bullet.class, false, false);
+        Seq<Bullet> bullets = new Seq<>();
+        Rand r = new Rand(0);
+        int amount = 20000, seconds = 10, perFrame = 20000 / 60;
+
+        for(int i = 0; i < amount; i++){
+            Bullet bullet = Bullet.create();
+            bullets.add(bullet);
+            group.add(bullet);
+        }
+
+        //replace 20k random bullets per second at 60 FPS
+        Time.mark();
+        for(int frame = 0; frame < seconds * 60; frame++){
+            for(int i = 0; i < perFrame; i++){
+                int idx = r.random(0, bullets.size - 1);
+                group.remove(bullets.get(idx));
+
+                Bullet bullet = Bullet.create();
+                bullets.set(idx, bullet);
+                group.add(bullet);
+            }
+        }
+        Log.info("@ms to churn @ bullets per second for @ seconds in a group of @", Time.elapsed(), perFrame * 60, seconds, amount);
+
+        assertEquals(amount, group.size());
+    }
+
+    @Test
+    void logicArithmetic(){
+        //tight arithmetic loop; every operand goes through the executor's variable storage
+        String loop = "op add i i 1\nop mul x i 2\nop sub y x 1\njump 0 lessThan i 100000000";
+        for(boolean compile : new boolean[]{false, true}){
+            LExecutor exec = new LExecutor();
+            exec.compile = compile;
+            exec.load(loop, LExecutor.maxInstructions);
+
+            //warmup
+            for(int i = 0; i < 1000000; i++){
+                exec.runOnce();
+            }
+
+            int instructions = 5000000;
+            long start = Time.nanos();
+            for(int i = 0; i < instructions; i++){
+                exec.runOnce();
+            }
+            long elapsed = Time.timeSinceNanos(start);
+            Log.info("@: @ms to run @ instructions (@ns/instruction)", compile ? "compiled" : "interpreted", elapsed / 1000000, instructions, Strings.fixed(elapsed / (float)instructions, 2));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package power;
+
+import arc.util.*;
+import mindustry.world.*;
+import mindustry.world.blocks.power.*;
+import mindustry.world.blocks.power.PowerGenerator.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Timing benchmarks for the power system. These only log their results, and are run with the 'benchmark' task instead of the regular tests. */
+@Tag("benchmark")
+public class PowerBenchmarks extends PowerTestFixture{
+
+    /** Times updates of a single graph with a large amount of producers, consumers and batteries. */
+    @Test
+    void largeGraph(){
+        Block producer = createFakeProducerBlock(1f), consumer = createFakeDirectConsumer(0.9f), battery = createFakeBattery(100f);
+        PowerGraph graph = new PowerGraph();
+
+        int nodes = 50000;
+        for(int i = 0; i < nodes; i++){
+            Block block = i % 10 == 0 ? battery : i % 2 == 0 ? producer : consumer;
+            Tile tile = createFakeTile(i % 250, i / 250, block);
+            if(block == producer){
+                tile.<GeneratorBuild>bc().productionEfficiency = 1f;
+            }
+            graph.add(tile.build);
+        }
+
+        //warmup
+        for(int i = 0; i < 200; i++){
+            graph.update();
+        }
+
+        int updates = 1000;
+        Time.mark();
+        for(int i = 0; i < updates; i++){
+            graph.update();
+        }
+        Log.info("@ms for @ updates of a graph with @ nodes", Time.elapsed(), updates, nodes);
+
+        assertTrue(graph.getLastPowerProduced() > 0f);
+    }
+}
@@ -2,9 +2,11 @@ package power;
 
 import arc.*;
 import arc.math.*;
+import arc.struct.*;
 import arc.util.*;
 import mindustry.*;
 import mindustry.core.*;
+import mindustry.gen.*;
 import mindustry.world.*;
 import mindustry.world.blocks.power.*;
 import mindustry.world.blocks.power.PowerGenerator.*;
@@ -140,5 +142,98 @@ public class PowerTests extends PowerTestFixture{
                 assertFalse(consumePower.valid(consumerTile.bc()));
             }
         }
+
+        /** Solving graphs on worker threads must leave every building with the same power status as solving them one after another. */
+        @Test
+        void parallelSolveMatchesSequential(){
+            Seq<Building> parallelBuilds = new Seq<>(), sequentialBuilds = new Seq<>();
+            Seq<PowerGraph> parallelGraphs = createGraphs(parallelBuilds), sequentialGraphs = createGraphs(sequentialBuilds);
+
+            PowerSolver parallel = new PowerSolver(), sequential = new PowerSolver();
+            parallel.parallelThreshold = 0;
+            parallel.chunkSize = 10;
+            sequential.parallel = false;
+
+            for(int i = 0; i < 20; i++){
+                parallel.solve(parallelGraphs);
+                sequential.solve(sequentialGraphs);
+            }
+
+            for(int i = 0; i < parallelGraphs.size; i++){
+                assertEquals(sequentialGraphs.get(i).getSatisfaction(), parallelGraphs.get(i).getSatisfaction(), "Satisfaction of graph " + i);
+                assertEquals(sequentialGraphs.get(i).getLastPowerStored(), parallelGraphs.get(i).getLastPowerStored(), "Stored power of graph " + i);
+            }
+
+            for(int i = 0; i < parallelBuilds.size; i++){
+                assertEquals(sequentialBuilds.get(i).power.status, parallelBuilds.get(i).power.status, "Status of building " + i);
+            }
+        }
+
+        /** Creates graphs with varying amounts of production, consumption and storage. Every building is added to the given list. */
+        Seq<PowerGraph> createGraphs(Seq<Building> builds){
+            Block battery = createFakeBattery(50f);
+            Seq<PowerGraph> graphs = new Seq<>();
+            Rand rand = new Rand(1);
+
+            for(int i = 0; i < 40; i++){
+                PowerGraph graph = new PowerGraph();
+                int size = rand.random(1, 30);
+                for(int j = 0; j < size; j++){
+                    float roll = rand.random(1f);
+                    Block block =
+                        roll < 0.3f ? createFakeProducerBlock(rand.random(0.1f, 2f)) :
+                        roll < 0.8f ? createFakeDirectConsumer(rand.random(0.1f, 2f)) :
+                        battery;
+
+                    Tile tile = createFakeTile(i, j, block);
+                    if(block instanceof PowerGenerator){
+                        tile.<GeneratorBuild>bc().productionEfficiency = 1f;
+                    }
+                    if(block == battery){
+                        tile.build.power.status = rand.random(1f);
+                    }
+                    graph.add(tile.build);
+                    builds.add(tile.build);
+                }
+                graphs.add(graph);
+            }
+            return graphs;
+        }
+
+        /** The single pass of an update must compute the same totals as the separate aggregate methods. */
+        @Test
+        void largeGraphTotals(){
+            Block producer = createFakeProducerBlock(1f), consumer = createFakeDirectConsumer(0.9f), battery = createFakeBattery(100f);
+            PowerGraph graph = new PowerGraph();
+            Seq<Building> consumers = new Seq<>();
+
+            for(int i = 0; i < 5000; i++){
+                Block block = i % 10 == 0 ? battery : i % 2 == 0 ? producer : consumer;
+                Tile tile = createFakeTile(i % 250, i / 250, block);
+                if(block == producer){
+                    tile.<GeneratorBuild>bc().productionEfficiency = 1f;
+                }else if(block == battery){
+                    tile.build.power.status = 0.5f;
+                }else{
+                    consumers.add(tile.build);
+                }
+                graph.add(tile.build);
+            }
+
+            float produced = graph.getPowerProduced(), needed = graph.getPowerNeeded(), stored = graph.getBatteryStored(), capacity = graph.getTotalBatteryCapacity();
+            //consumers need more than producers make, so batteries cover the rest
+            assertTrue(needed > produced);
+
+            graph.update();
+
+            assertEquals(needed, graph.getLastPowerNeeded(), Mathf.FLOAT_ROUNDING_ERROR);
+            assertEquals(stored, graph.getLastPowerStored(), Mathf.FLOAT_ROUNDING_ERROR);
+            assertEquals(capacity, graph.getLastCapacity(), Mathf.FLOAT_ROUNDING_ERROR);
+            assertEquals(needed, graph.getLastPowerProduced(), 0.01f);
+            assertEquals(stored - (needed - produced), graph.getBatteryStored(), 0.01f);
+            for(Building build : consumers){
+                assertEquals(1f, build.power.status, Mathf.FLOAT_ROUNDING_ERROR);
+            }
+        }
     }
 }